@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks;
+
+import androidx.annotation.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import no.nordicsemi.android.log.core.Level;
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogEngine;
+import no.nordicsemi.android.log.core.LogSink;
+import no.nordicsemi.android.log.core.Messages;
+import no.nordicsemi.android.log.core.TagFilter;
+import no.nordicsemi.android.log.core.TagPrefixCache;
+
+/**
+ * Verifies that the steady-state logging path does not allocate, using the per-thread
+ * allocation counter of {@link com.sun.management.ThreadMXBean}.
+ * <p>
+ * After a warm-up, the following must allocate nothing:
+ * <ul>
+ *     <li>a call filtered out by level, e.g. a debug entry below the minimum level of info,</li>
+ *     <li>an accepted call kept in the flight recorder buffer, single and in a batch,</li>
+ *     <li>an accepted call written to the sink, also when it flushes the buffer,</li>
+ *     <li>the Timber tree path without tags,</li>
+ *     <li>the tag filter of the Timber tree.</li>
+ * </ul>
+ * The Timber tree path with tags may allocate no more than creating the prefixed message.
+ * <p>
+ * The check runs on the JVM and covers the log-core classes only: {@link LogEngine},
+ * {@link TagFilter} and {@link TagPrefixCache}, called the way <code>Logger</code> and
+ * <code>nRFLoggerTree</code> call them, with a sink which does not copy the entries. The
+ * <code>Logger</code> methods and <code>nRFLoggerTree</code> themselves are checked by
+ * <code>LoggerAllocationTest</code> in the provider-benchmarks module, which runs with the
+ * unit tests.
+ * <p>
+ * Each case first verifies that the engine handled the entry as expected, e.g. that a
+ * filtered call really was filtered out. Run with
+ * <code>./gradlew :benchmarks:allocationCheck</code>; the process exits with code 1 if any
+ * check fails.
+ */
+public final class AllocationCheck {
+	private static final String MESSAGE = "Connecting to device...";
+	private static final String TAG = "BleManager";
+	private static final int WARMUP_ITERATIONS = 2_000_000;
+	private static final int ITERATIONS = 1_000_000;
+	/** Tolerance for the allocation of the measurement itself. */
+	private static final double MAX_NOISE = 0.01;
+
+	private interface Operation {
+		void run(int i);
+	}
+
+	/** A sink keeping only the last entry, which does not allocate. */
+	private static final class LastEntrySink implements LogSink {
+		private long entries;
+		private String last;
+
+		@Override
+		public void write(final long time, final int level, @NonNull final String message) {
+			entries++;
+			last = message;
+		}
+
+		@Override
+		public void write(@NonNull final LogBatch batch, final int start, final int end) {
+			entries += end - start;
+			last = batch.getData(end - 1);
+		}
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static long filteredCount;
+	private static String escaped;
+	private static boolean failed;
+
+	private AllocationCheck() {
+		// empty
+	}
+
+	public static void main(final String[] args) {
+		if (!THREADS.isThreadAllocatedMemorySupported() || !THREADS.isThreadAllocatedMemoryEnabled()) {
+			System.err.println("Thread allocated memory is not supported by this JVM");
+			System.exit(2);
+		}
+
+		final LastEntrySink sink = new LastEntrySink();
+		final LogEngine.Listener listener = level -> filteredCount++;
+		final LogEngine engine = new LogEngine.Builder(sink)
+				.setMinLevel(Level.INFO)
+				.setListener(listener)
+				.build();
+		final LogEngine recorder = new LogEngine.Builder(sink)
+				.setMinLevel(Level.DEBUG)
+				.setBufferedBelow(Level.WARNING, 200)
+				.setListener(listener)
+				.build();
+		final LogBatch batch = new LogBatch();
+		for (int i = 0; i < 10; ++i)
+			batch.add(i, Level.DEBUG, MESSAGE);
+
+		expectResult("filtered", engine.log(0, Level.DEBUG, MESSAGE), LogEngine.FILTERED);
+		expectNone("filtered", i -> engine.log(i, Level.DEBUG, MESSAGE));
+		expectResult("written", engine.log(0, Level.INFO, MESSAGE), LogEngine.WRITTEN);
+		expectNone("written", i -> engine.log(i, Level.INFO, MESSAGE));
+		expectResult("buffered", recorder.log(0, Level.DEBUG, MESSAGE), LogEngine.BUFFERED);
+		expectNone("buffered", i -> recorder.log(i, Level.DEBUG, MESSAGE));
+		expectNone("buffered batch", i -> recorder.log(batch));
+		expectResult("written with buffer flush", recorder.log(0, Level.WARNING, MESSAGE), LogEngine.WRITTEN);
+		expectNone("written with buffer flush",
+				i -> recorder.log(i, i % 50 == 0 ? Level.WARNING : Level.DEBUG, MESSAGE));
+		expectResult("tree, filtered",
+				engine.log(0, Level.fromPriority(2 /* VERBOSE */), MESSAGE), LogEngine.FILTERED);
+		expectNone("tree, filtered", i -> engine.log(i, Level.fromPriority(2 /* VERBOSE */), MESSAGE));
+		expectResult("tree", recorder.log(0, Level.fromPriority(3 /* DEBUG */), MESSAGE), LogEngine.BUFFERED);
+		expectNone("tree", i -> recorder.log(i, Level.fromPriority(3 /* DEBUG */), MESSAGE));
+
+		final TagFilter filter = new TagFilter.Builder()
+				.setMinPriority(4 /* INFO */)
+				.setMinPriority(TAG, 2 /* VERBOSE */)
+				.deny("Chatty")
+				.build();
+		expectNone("tree, tag filter", i -> {
+			if (!filter.isLoggable(i % 2 == 0 ? TAG : "Chatty", 3 /* DEBUG */))
+				filteredCount++;
+		});
+
+		// With tags, the prefixed message is created for each call. Nothing else may be allocated.
+		final double message = measure(i -> escaped = Messages.withTag(TAG, MESSAGE));
+		final TagPrefixCache prefixes = new TagPrefixCache();
+		expect("tree with tag", i -> recorder.log(i, Level.fromPriority(3 /* DEBUG */),
+				prefixes.withTag(TAG, MESSAGE)), message);
+
+		if (failed)
+			System.exit(1);
+	}
+
+	private static void expectResult(@NonNull final String name, final int result, final int expected) {
+		if (result != expected) {
+			System.out.println(String.format(Locale.US, "%-28s result %d, expected %d FAILED",
+					name, result, expected));
+			failed = true;
+		}
+	}
+
+	private static void expectNone(@NonNull final String name, @NonNull final Operation operation) {
+		expect(name, operation, 0);
+	}
+
+	private static void expect(@NonNull final String name, @NonNull final Operation operation,
+							   final double maxBytesPerOperation) {
+		final double bytes = measure(operation);
+		final boolean ok = bytes <= maxBytesPerOperation + MAX_NOISE;
+		System.out.println(String.format(Locale.US, "%-28s %8.3f B/op (max %.3f) %s",
+				name, bytes, maxBytesPerOperation, ok ? "OK" : "FAILED"));
+		failed |= !ok;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the operation, per call, after the warm-up.
+	 */
+	private static double measure(@NonNull final Operation operation) {
+		for (int i = 0; i < WARMUP_ITERATIONS; ++i)
+			operation.run(i);
+		final long threadId = Thread.currentThread().getId();
+		final long before = THREADS.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < ITERATIONS; ++i)
+			operation.run(i);
+		final long after = THREADS.getThreadAllocatedBytes(threadId);
+		return (double) (after - before) / ITERATIONS;
+	}
+}
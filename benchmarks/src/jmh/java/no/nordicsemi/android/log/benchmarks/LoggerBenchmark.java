@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+
+import no.nordicsemi.android.log.core.BatchSplitter;
+import no.nordicsemi.android.log.core.Level;
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogEngine;
+import no.nordicsemi.android.log.core.TagFilter;
+import no.nordicsemi.android.log.core.TagPrefixCache;
+
+/**
+ * Benchmarks of the write path of the Logger, single threaded.
+ * <p>
+ * The Logger and the Timber tree are Android classes and can't be run on the JVM. Each
+ * benchmark builds its {@link LogEngine} like the session constructors do, and makes the
+ * same log-core calls as the matching <code>Logger</code> or <code>nRFLoggerTree</code>
+ * method, writing to a {@link MemorySink} instead of the content provider. The whole path,
+ * including the content resolver and the provider, is measured on Robolectric by the
+ * <code>provider-benchmarks</code> module (<code>logger</code>, <code>loggerBulk</code> and
+ * <code>tree</code> results).
+ * <ul>
+ *     <li>{@link #logString()} - <code>Logger.i(session, message)</code> on a
+ *     <code>LogSession</code> or <code>LocalLogSession</code>,</li>
+ *     <li>{@link #logStringRes()} - <code>Logger.i(session, resId, params)</code>, which
+ *     formats the message with <code>Context.getString(resId, params)</code>,</li>
+ *     <li>{@link #logEntries()} - <code>Logger.log(session, List)</code> with {@link #batchSize}
+ *     entries, split into chunks for binder transactions,</li>
+ *     <li>{@link #treeLog()} - <code>Timber.i(message)</code> with a tag, through
+ *     <code>nRFLoggerTree</code>,</li>
+ *     <li>{@link #logFiltered()} - <code>Logger.d(session, message)</code> on a session with
+ *     the minimum level set to INFO,</li>
+ *     <li>{@link #logBuffered(Blackhole)} - a <code>FlightRecorderLogSession</code> with the
+ *     default settings.</li>
+ * </ul>
+ * See {@link ConcurrentLoggerBenchmark} for the same benchmarks with multiple threads.
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+public class LoggerBenchmark {
+	private static final String MESSAGE = "Connecting to device...";
+	private static final String FORMAT = "Data received from %s: (0x) %s";
+	private static final String TAG = "BleManager";
+	/** <code>FlightRecorderLogSession.DEFAULT_CAPACITY</code>. */
+	private static final int RECORDER_CAPACITY = 200;
+	/** Sessions report filtered entries to <code>LogMetrics</code>, disabled by default. */
+	private static final LogEngine.Listener METRICS = level -> {
+		// disabled
+	};
+
+	@Param({"100"})
+	public int batchSize;
+
+	private MemorySink sink;
+	/** The engine of a session, as created by the session. */
+	private LogEngine engine;
+	/** The engine of a session after <code>setMinLevel(INFO)</code>. */
+	private LogEngine filtering;
+	/** The engine of a <code>FlightRecorderLogSession</code>. */
+	private LogEngine recorder;
+	private LogBatch batch;
+	private Object[] params;
+	private TagFilter filter;
+	private TagPrefixCache prefixes;
+
+	@Setup(org.openjdk.jmh.annotations.Level.Trial)
+	public void setUp() {
+		sink = new MemorySink();
+		engine = new LogEngine.Builder(sink)
+				.setListener(METRICS)
+				.build();
+		filtering = new LogEngine.Builder(sink)
+				.setListener(METRICS)
+				.build();
+		filtering.setMinLevel(Level.INFO);
+		recorder = new LogEngine.Builder(sink)
+				.setBufferedBelow(Level.WARNING, RECORDER_CAPACITY)
+				.setListener(METRICS)
+				.build();
+		batch = new LogBatch(batchSize);
+		final long now = System.currentTimeMillis();
+		for (int i = 0; i < batchSize; ++i) {
+			batch.add(now + i, Level.INFO, MESSAGE + i);
+		}
+		params = new Object[] { "Heart Rate Measurement", "06-4A" };
+		filter = TagFilter.ALL;
+		prefixes = new TagPrefixCache();
+
+		if (filtering.log(0, Level.DEBUG, MESSAGE) != LogEngine.FILTERED)
+			throw new IllegalStateException("logFiltered must log below the minimum level");
+		if (recorder.log(0, Level.DEBUG, MESSAGE) != LogEngine.BUFFERED)
+			throw new IllegalStateException("logBuffered must buffer entries below WARNING");
+	}
+
+	@Benchmark
+	public int logString() {
+		return engine.log(System.currentTimeMillis(), Level.INFO, MESSAGE);
+	}
+
+	@Benchmark
+	public int logStringRes() {
+		// Logger checks the level before formatting the message
+		if (!engine.isLoggable(Level.INFO))
+			return LogEngine.FILTERED;
+		final String message = String.format(Locale.US, FORMAT, params);
+		return engine.log(System.currentTimeMillis(), Level.INFO, message);
+	}
+
+	@Benchmark
+	public void logEntries() {
+		// Bulk inserts are filtered by the session level and split into chunks,
+		// without going through the engine
+		if (engine.isLoggable(Level.DEBUG))
+			BatchSplitter.split(batch, BatchSplitter.DEFAULT_MAX_CHUNK_SIZE, sink);
+	}
+
+	@Benchmark
+	public int treeLog() {
+		// nRFLoggerTree.isLoggable(tag, priority), then nRFLoggerTree.log(...)
+		final int level = Level.fromPriority(4 /* Log.INFO */);
+		if (!filter.isLoggable(TAG, 4 /* Log.INFO */) || !engine.isLoggable(level))
+			return LogEngine.FILTERED;
+		return engine.log(System.currentTimeMillis(), level, prefixes.withTag(TAG, MESSAGE));
+	}
+
+	@Benchmark
+	public int logFiltered() {
+		return filtering.log(System.currentTimeMillis(), Level.DEBUG, MESSAGE);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(50)
+	public void logBuffered(final Blackhole blackhole) {
+		// 1 in 50 entries is a warning, flushing the ring.
+		final long now = System.currentTimeMillis();
+		for (int i = 0; i < 49; ++i) {
+			blackhole.consume(recorder.log(now, Level.DEBUG, MESSAGE));
+		}
+		blackhole.consume(recorder.log(now, Level.WARNING, MESSAGE));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogSink;
+
+/**
+ * A fake sink keeping the entries in memory instead of sending them to a content provider.
+ * <p>
+ * Batches are copied into arrays, like the Android sink does before the binder call, so that
+ * the cost of the write path, without the IPC, is measured.
+ */
+public final class MemorySink implements LogSink {
+	private final LongAdder entries = new LongAdder();
+	private final LongAdder calls = new LongAdder();
+	private volatile Object last;
+	// Keep the copies reachable, so that they are not optimized out
+	private long[] lastTimes;
+	private int[] lastLevels;
+
+	@Override
+	public void write(final long time, final int level, @NonNull final String message) {
+		calls.increment();
+		entries.increment();
+		last = message;
+	}
+
+	@Override
+	public void write(@NonNull final LogBatch batch, final int start, final int end) {
+		lastTimes = batch.copyTimes(start, end);
+		lastLevels = batch.copyLevels(start, end);
+		last = batch.copyData(start, end);
+		calls.increment();
+		entries.add(end - start);
+	}
+
+	/**
+	 * Returns the number of entries written.
+	 */
+	public long getEntryCount() {
+		return entries.sum();
+	}
+
+	/**
+	 * Returns the number of write calls, each matching a single provider call on Android.
+	 */
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	/**
+	 * Returns the last message or data array written, to keep the writes observable.
+	 */
+	public Object getLast() {
+		return last;
+	}
+}
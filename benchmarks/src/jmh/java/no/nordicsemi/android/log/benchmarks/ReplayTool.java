@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.SessionTraces;
+import no.nordicsemi.android.log.core.TraceReplayer;
+
+/**
+ * Replays an exported session into a {@link MemorySink} and prints the throughput and
+ * latency percentiles.
+ * <pre>
+ * ReplayTool &lt;trace&gt; [speed] [--time-zone &lt;id&gt;] [--export &lt;file&gt;]
+ * </pre>
+ * The trace is a session in the text format of the <code>session/#/log/content</code> Uri,
+ * or a binary trace, see {@link SessionTraces}. The speed is a factor, 1 for real time (default),
+ * or <code>max</code>. With <code>--export</code> the trace is also saved in the binary format.
+ * <p>
+ * The text format contains only the time of day, so an idle gap of more than 12 hours that
+ * crosses midnight is replayed a day shorter, and gaps of whole days are skipped. Prefer a
+ * binary trace for such sessions.
+ * <p>
+ * Run with <code>./gradlew :benchmarks:replay -Ptrace=&lt;file&gt; -Pspeed=max</code>. To replay
+ * into a <code>LocalLogContentProvider</code>, use the <code>providerReplay</code> task of the
+ * provider-benchmarks module.
+ */
+public final class ReplayTool {
+
+	private ReplayTool() {
+		// empty
+	}
+
+	public static void main(final String[] args) throws IOException {
+		String trace = null;
+		String export = null;
+		double speed = TraceReplayer.REAL_TIME;
+		TimeZone timeZone = TimeZone.getDefault();
+		for (int i = 0; i < args.length; ++i) {
+			switch (args[i]) {
+				case "--export":
+					export = args[++i];
+					break;
+				case "--time-zone":
+					timeZone = TimeZone.getTimeZone(args[++i]);
+					break;
+				default:
+					if (trace == null)
+						trace = args[i];
+					else
+						speed = parseSpeed(args[i]);
+			}
+		}
+		if (trace == null) {
+			System.err.println("Usage: ReplayTool <trace> [speed|max] [--time-zone <id>] [--export <file>]");
+			System.exit(2);
+		}
+
+		final LogBatch batch = read(trace, timeZone);
+		System.out.println("Read " + batch.size() + " entries from " + trace);
+		if (export != null) {
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(export))) {
+				SessionTraces.writeBinary(batch, 0, out);
+			}
+			System.out.println("Exported to " + export);
+		}
+
+		final MemorySink sink = new MemorySink();
+		final TraceReplayer.Result result = new TraceReplayer(sink).replay(batch, speed);
+		System.out.println(result);
+	}
+
+	/**
+	 * Parses the speed factor: a number or "max".
+	 */
+	public static double parseSpeed(@NonNull final String speed) {
+		if ("max".equalsIgnoreCase(speed))
+			return TraceReplayer.MAX_SPEED;
+		return Double.parseDouble(speed);
+	}
+
+	@NonNull
+	private static LogBatch read(@NonNull final String path, @NonNull final TimeZone timeZone)
+			throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+			if (SessionTraces.isBinary(in))
+				return SessionTraces.readBinary(in);
+			return SessionTraces.readText(new InputStreamReader(in, StandardCharsets.UTF_8), timeZone);
+		}
+	}
+}
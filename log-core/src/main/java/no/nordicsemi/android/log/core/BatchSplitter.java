@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Splits batches of log entries into chunks small enough to be sent in a single binder
+ * transaction. Binder transactions fail above 1 MB, shared by all transactions in progress
+ * in the process, so a chunk is limited to {@link #DEFAULT_MAX_CHUNK_SIZE} by default.
+ */
+public final class BatchSplitter {
+	/**
+	 * Default maximum estimated size of a chunk, in bytes.
+	 */
+	public static final int DEFAULT_MAX_CHUNK_SIZE = 256 * 1024;
+	/**
+	 * Estimated size of an entry without its data, in bytes: the keys and types of the values
+	 * and the time and level.
+	 */
+	public static final int ENTRY_SIZE_OVERHEAD = 96;
+
+	public interface SizeFunction {
+		/**
+		 * Returns the estimated size of the entry with given index.
+		 */
+		int getSize(int index);
+	}
+
+	private BatchSplitter() {
+		// empty
+	}
+
+	/**
+	 * Returns the estimated size of the log entry when written to a Parcel.
+	 * Strings are written in UTF-16.
+	 *
+	 * @param data the entry data.
+	 */
+	public static int estimateSize(@Nullable final String data) {
+		return ENTRY_SIZE_OVERHEAD + (data != null ? 2 * data.length() : 0);
+	}
+
+	/**
+	 * Returns the end of the chunk starting at the given index. The chunk contains at least
+	 * one entry, even if it's bigger than the maximum size.
+	 *
+	 * @param start   the index of the first entry in the chunk.
+	 * @param end     the index after the last entry that may be in the chunk.
+	 * @param maxSize the maximum estimated size of the chunk.
+	 * @param sizes   the function returning estimated entry sizes.
+	 * @return The index after the last entry in the chunk.
+	 */
+	public static int chunkEnd(final int start, final int end, final int maxSize,
+							   @NonNull final SizeFunction sizes) {
+		int size = 0;
+		for (int i = start; i < end; ++i) {
+			size += sizes.getSize(i);
+			if (i > start && size > maxSize)
+				return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Writes the batch to the sink in chunks of at most the given estimated size.
+	 *
+	 * @param batch   the batch.
+	 * @param maxSize the maximum estimated size of a chunk.
+	 * @param sink    the sink.
+	 */
+	public static void split(@NonNull final LogBatch batch, final int maxSize,
+							 @NonNull final LogSink sink) {
+		final int count = batch.size();
+		int start = 0;
+		while (start < count) {
+			int size = 0;
+			int end = start;
+			while (end < count) {
+				size += estimateSize(batch.getData(end));
+				if (end > start && size > maxSize)
+					break;
+				end++;
+			}
+			sink.write(batch, start, end);
+			start = end;
+		}
+	}
+}
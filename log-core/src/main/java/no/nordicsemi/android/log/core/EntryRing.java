@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A ring of the last N log entries kept in memory. When the ring is full, the oldest entry
+ * is overwritten. The ring is not thread safe.
+ */
+public final class EntryRing {
+	private final long[] times;
+	private final int[] levels;
+	private final String[] data;
+	/** Index of the oldest entry. */
+	private int head;
+	private int size;
+
+	/**
+	 * Creates the ring.
+	 *
+	 * @param capacity the maximum number of entries.
+	 */
+	public EntryRing(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be greater than 0");
+		times = new long[capacity];
+		levels = new int[capacity];
+		data = new String[capacity];
+	}
+
+	public int capacity() {
+		return data.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the entry to the ring.
+	 *
+	 * @param time    the entry time.
+	 * @param level   the entry level.
+	 * @param message the entry data.
+	 * @return The level of the overwritten entry, or -1 if the ring was not full.
+	 */
+	public int add(final long time, final int level, @NonNull final String message) {
+		final int index;
+		int overwritten = -1;
+		if (size == data.length) {
+			// Overwrite the oldest entry
+			index = head;
+			overwritten = levels[index];
+			head = (head + 1) % data.length;
+		} else {
+			index = (head + size) % data.length;
+			size++;
+		}
+		times[index] = time;
+		levels[index] = level;
+		data[index] = message;
+		return overwritten;
+	}
+
+	/**
+	 * Moves all entries, in order, to the batch.
+	 *
+	 * @param batch the batch to add the entries to.
+	 */
+	public void drainTo(@NonNull final LogBatch batch) {
+		for (int i = 0; i < size; ++i) {
+			final int index = (head + i) % data.length;
+			batch.add(times[index], levels[index], data[index]);
+			data[index] = null;
+		}
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Removes all entries.
+	 *
+	 * @param listener called with the level of each removed entry, may be null.
+	 */
+	public void clear(final LogEngine.Listener listener) {
+		for (int i = 0; i < size; ++i) {
+			final int index = (head + i) % data.length;
+			if (listener != null)
+				listener.onFiltered(levels[index]);
+			data[index] = null;
+		}
+		head = 0;
+		size = 0;
+	}
+}
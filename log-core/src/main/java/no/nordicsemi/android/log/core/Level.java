@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+/**
+ * Log levels, the same as in <code>LogContract.Log.Level</code>.
+ */
+@SuppressWarnings("unused")
+public final class Level {
+	/** Level used just for debugging purposes. It has lowest level. */
+	public final static int DEBUG = 0;
+	/** Log entries with minor importance. */
+	public final static int VERBOSE = 1;
+	/** Default logging level for important entries. */
+	public final static int INFO = 5;
+	/** Log entries level for applications. */
+	public final static int APPLICATION = 10;
+	/** Log entries with high importance. */
+	public final static int WARNING = 15;
+	/** Log entries with very high importance, like errors. */
+	public final static int ERROR = 20;
+
+	private Level() {
+		// empty
+	}
+
+	/**
+	 * Returns the level matching the given <code>android.util.Log</code> priority.
+	 *
+	 * @param priority the priority, from VERBOSE (2) to ASSERT (7). Other values are
+	 *                 returned unchanged, so levels like {@link #APPLICATION} may be used.
+	 * @return The level.
+	 */
+	public static int fromPriority(final int priority) {
+		switch (priority) {
+			case 2: // VERBOSE
+				return VERBOSE;
+			case 3: // DEBUG
+				return DEBUG;
+			case 4: // INFO
+				return INFO;
+			case 5: // WARN
+				return WARNING;
+			case 6: // ERROR
+			case 7: // ASSERT
+				return ERROR;
+			default:
+				return priority;
+		}
+	}
+
+	/**
+	 * Returns the character used for the level in the text format of a session.
+	 *
+	 * @param level the log level.
+	 * @return One of 'D', 'V', 'I', 'A', 'W' or 'E'.
+	 */
+	public static char toChar(final int level) {
+		switch (level) {
+			case VERBOSE:
+				return 'V';
+			case INFO:
+				return 'I';
+			case APPLICATION:
+				return 'A';
+			case WARNING:
+				return 'W';
+			case ERROR:
+				return 'E';
+			default:
+				return 'D';
+		}
+	}
+
+	/**
+	 * Returns the level for the character used in the text format of a session.
+	 *
+	 * @param c the level character.
+	 * @return The level, or -1 if the character is not a level.
+	 */
+	public static int fromChar(final char c) {
+		switch (c) {
+			case 'D':
+				return DEBUG;
+			case 'V':
+				return VERBOSE;
+			case 'I':
+				return INFO;
+			case 'A':
+				return APPLICATION;
+			case 'W':
+				return WARNING;
+			case 'E':
+				return ERROR;
+			default:
+				return -1;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * A reusable batch of log entries stored in parallel arrays.
+ * <p>
+ * Adding entries to a batch that has already grown to the needed capacity does not allocate.
+ * The batch is not thread safe.
+ */
+@SuppressWarnings("unused")
+public final class LogBatch {
+	private long[] times;
+	private int[] levels;
+	private String[] data;
+	private int size;
+
+	public LogBatch() {
+		this(16);
+	}
+
+	/**
+	 * Creates a batch with given initial capacity.
+	 *
+	 * @param capacity the initial capacity. The batch grows when needed.
+	 */
+	public LogBatch(final int capacity) {
+		final int c = Math.max(1, capacity);
+		times = new long[c];
+		levels = new int[c];
+		data = new String[c];
+	}
+
+	/**
+	 * Adds the entry to the batch.
+	 *
+	 * @param time    the entry time.
+	 * @param level   the entry level.
+	 * @param message the entry data.
+	 */
+	public void add(final long time, final int level, @NonNull final String message) {
+		if (size == data.length) {
+			final int capacity = 2 * size;
+			times = Arrays.copyOf(times, capacity);
+			levels = Arrays.copyOf(levels, capacity);
+			data = Arrays.copyOf(data, capacity);
+		}
+		times[size] = time;
+		levels[size] = level;
+		data[size] = message;
+		size++;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all entries, keeping the capacity.
+	 */
+	public void clear() {
+		Arrays.fill(data, 0, size, null);
+		size = 0;
+	}
+
+	public long getTime(final int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	public int getLevel(final int index) {
+		checkIndex(index);
+		return levels[index];
+	}
+
+	@NonNull
+	public String getData(final int index) {
+		checkIndex(index);
+		return data[index];
+	}
+
+	/**
+	 * Returns the times of the entries from the given range.
+	 */
+	@NonNull
+	public long[] copyTimes(final int start, final int end) {
+		checkRange(start, end);
+		return Arrays.copyOfRange(times, start, end);
+	}
+
+	/**
+	 * Returns the levels of the entries from the given range.
+	 */
+	@NonNull
+	public int[] copyLevels(final int start, final int end) {
+		checkRange(start, end);
+		return Arrays.copyOfRange(levels, start, end);
+	}
+
+	/**
+	 * Returns the data of the entries from the given range.
+	 */
+	@NonNull
+	public String[] copyData(final int start, final int end) {
+		checkRange(start, end);
+		return Arrays.copyOfRange(data, start, end);
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+	}
+
+	private void checkRange(final int start, final int end) {
+		if (start < 0 || end > size || start > end)
+			throw new IndexOutOfBoundsException("Range: " + start + "-" + end + ", size: " + size);
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The logging engine: filters entries by level, optionally keeps low level entries in memory
+ * (flight recorder), and writes entries to a {@link LogSink} in chunks small enough for
+ * a single binder transaction.
+ * <p>
+ * Entries below the minimum level are discarded. If the flight recorder is enabled with
+ * {@link Builder#setBufferedBelow(int, int)}, entries below the given level are only kept in
+ * a ring of the last N entries. When an entry with higher level is logged, the buffered
+ * entries are written in order in front of it in a single batch.
+ * <p>
+ * The engine is thread safe. With the flight recorder enabled, the sink is called while
+ * holding the engine lock, so that entries are written in order.
+ */
+@SuppressWarnings("unused")
+public final class LogEngine {
+	/** The entry was written to the sink. */
+	public static final int WRITTEN = 0;
+	/** The entry was kept in memory. */
+	public static final int BUFFERED = 1;
+	/** The entry was discarded because of its level. */
+	public static final int FILTERED = 2;
+
+	public interface Listener {
+		/**
+		 * Called when an entry was discarded because of its level, either immediately or
+		 * when it was overwritten in the flight recorder buffer.
+		 *
+		 * @param level the level of the entry.
+		 */
+		void onFiltered(int level);
+	}
+
+	private final LogSink sink;
+	private volatile int minLevel;
+	private final int writeThroughLevel;
+	private final int maxChunkSize;
+	@Nullable
+	private final Listener listener;
+	/* guarded by this */ @Nullable
+	private final EntryRing ring;
+	/* guarded by this */
+	private final LogBatch scratch = new LogBatch();
+
+	private LogEngine(@NonNull final Builder builder) {
+		sink = builder.sink;
+		minLevel = builder.minLevel;
+		writeThroughLevel = builder.writeThroughLevel;
+		maxChunkSize = builder.maxChunkSize;
+		listener = builder.listener;
+		ring = builder.bufferCapacity > 0 ? new EntryRing(builder.bufferCapacity) : null;
+	}
+
+	/**
+	 * Returns the sink.
+	 */
+	@NonNull
+	public LogSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * Sets the minimum level of logged entries. Entries with lower level are discarded.
+	 * Entries already kept in the flight recorder buffer are not affected.
+	 *
+	 * @param level the minimum level.
+	 */
+	public void setMinLevel(final int level) {
+		minLevel = level;
+	}
+
+	/**
+	 * Returns the minimum level of logged entries.
+	 */
+	public int getMinLevel() {
+		return minLevel;
+	}
+
+	/**
+	 * Returns whether entries with given level are not discarded.
+	 */
+	public boolean isLoggable(final int level) {
+		return level >= minLevel;
+	}
+
+	/**
+	 * Logs the entry.
+	 *
+	 * @param time    the entry time.
+	 * @param level   the entry level.
+	 * @param message the entry data.
+	 * @return One of {@link #WRITTEN}, {@link #BUFFERED} or {@link #FILTERED}.
+	 */
+	public int log(final long time, final int level, @NonNull final String message) {
+		if (level < minLevel) {
+			if (listener != null)
+				listener.onFiltered(level);
+			return FILTERED;
+		}
+		if (ring == null) {
+			sink.write(time, level, message);
+			return WRITTEN;
+		}
+
+		synchronized (this) {
+			if (level < writeThroughLevel) {
+				final int overwritten = ring.add(time, level, message);
+				if (overwritten >= 0 && listener != null)
+					listener.onFiltered(overwritten);
+				return BUFFERED;
+			}
+			if (ring.size() == 0) {
+				sink.write(time, level, message);
+				return WRITTEN;
+			}
+			try {
+				ring.drainTo(scratch);
+				scratch.add(time, level, message);
+				BatchSplitter.split(scratch, maxChunkSize, sink);
+			} finally {
+				scratch.clear();
+			}
+			return WRITTEN;
+		}
+	}
+
+	/**
+	 * Logs all entries from the batch. The batch is not modified.
+	 *
+	 * @param batch the batch.
+	 */
+	public void log(@NonNull final LogBatch batch) {
+		final int min = minLevel;
+		synchronized (this) {
+			try {
+				for (int i = 0; i < batch.size(); ++i) {
+					final int level = batch.getLevel(i);
+					if (level < min) {
+						if (listener != null)
+							listener.onFiltered(level);
+						continue;
+					}
+					if (ring != null) {
+						if (level < writeThroughLevel) {
+							final int overwritten = ring.add(batch.getTime(i), level, batch.getData(i));
+							if (overwritten >= 0 && listener != null)
+								listener.onFiltered(overwritten);
+							continue;
+						}
+						ring.drainTo(scratch);
+					}
+					scratch.add(batch.getTime(i), level, batch.getData(i));
+				}
+				if (!scratch.isEmpty())
+					BatchSplitter.split(scratch, maxChunkSize, sink);
+			} finally {
+				scratch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes all entries kept in memory to the sink.
+	 */
+	public synchronized void flush() {
+		if (ring == null || ring.size() == 0)
+			return;
+		try {
+			ring.drainTo(scratch);
+			BatchSplitter.split(scratch, maxChunkSize, sink);
+		} finally {
+			scratch.clear();
+		}
+	}
+
+	/**
+	 * Discards all entries kept in memory.
+	 */
+	public synchronized void clear() {
+		if (ring != null)
+			ring.clear(listener);
+	}
+
+	public static final class Builder {
+		private final LogSink sink;
+		private int minLevel = Level.DEBUG;
+		private int writeThroughLevel = Level.DEBUG;
+		private int bufferCapacity;
+		private int maxChunkSize = BatchSplitter.DEFAULT_MAX_CHUNK_SIZE;
+		private Listener listener;
+
+		public Builder(@NonNull final LogSink sink) {
+			this.sink = sink;
+		}
+
+		/**
+		 * Sets the minimum level of logged entries. Entries with lower level are discarded.
+		 * By default all entries are logged.
+		 */
+		@NonNull
+		public Builder setMinLevel(final int level) {
+			minLevel = level;
+			return this;
+		}
+
+		/**
+		 * Enables the flight recorder. Entries with level lower than the write-through level are
+		 * kept in a ring buffer of given capacity and written only in front of an entry with
+		 * the write-through level or higher.
+		 *
+		 * @param writeThroughLevel the lowest level of entries written immediately.
+		 * @param capacity          the maximum number of buffered entries.
+		 */
+		@NonNull
+		public Builder setBufferedBelow(final int writeThroughLevel, final int capacity) {
+			if (capacity <= 0)
+				throw new IllegalArgumentException("Capacity must be greater than 0");
+			this.writeThroughLevel = writeThroughLevel;
+			this.bufferCapacity = capacity;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum estimated size of a chunk written to the sink,
+		 * by default {@link BatchSplitter#DEFAULT_MAX_CHUNK_SIZE}.
+		 */
+		@NonNull
+		public Builder setMaxChunkSize(final int size) {
+			if (size <= 0)
+				throw new IllegalArgumentException("Chunk size must be greater than 0");
+			maxChunkSize = size;
+			return this;
+		}
+
+		/**
+		 * Sets the listener notified about discarded entries.
+		 */
+		@NonNull
+		public Builder setListener(@Nullable final Listener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		@NonNull
+		public LogEngine build() {
+			return new LogEngine(this);
+		}
+	}
+}
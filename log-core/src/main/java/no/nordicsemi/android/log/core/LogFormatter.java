@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.TimeZone;
+
+/**
+ * Formats log entries in the text format of a session, as returned by the
+ * <code>session/#/log/content</code> Uri:
+ * <pre>
+ * Application name, 2024-01-31
+ * Session name (key)
+ * D	12:34:56.789	message
+ * </pre>
+ * Entries are appended to a {@link StringBuilder} without creating intermediate objects.
+ */
+public final class LogFormatter {
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private final TimeZone timeZone;
+
+	/**
+	 * Creates the formatter using the default time zone.
+	 */
+	public LogFormatter() {
+		this(TimeZone.getDefault());
+	}
+
+	public LogFormatter(@NonNull final TimeZone timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	/**
+	 * Appends the session header: application name and the date, and the session name and key.
+	 *
+	 * @param builder   the builder.
+	 * @param appName   the application name.
+	 * @param createdAt the session creation time.
+	 * @param name      the session name, may be null.
+	 * @param key       the session key.
+	 * @return The builder.
+	 */
+	@NonNull
+	public StringBuilder appendHeader(@NonNull final StringBuilder builder, @NonNull final String appName,
+									  final long createdAt, @Nullable final String name,
+									  @NonNull final String key) {
+		builder.append(appName).append(", ");
+		appendDate(builder, createdAt);
+		builder.append('\n');
+		builder.append(name != null ? name : "No name").append(" (").append(key).append(")\n");
+		return builder;
+	}
+
+	/**
+	 * Appends the log entry as a single line.
+	 *
+	 * @param builder the builder.
+	 * @param time    the entry time.
+	 * @param level   the entry level.
+	 * @param data    the entry data.
+	 * @return The builder.
+	 */
+	@NonNull
+	public StringBuilder appendEntry(@NonNull final StringBuilder builder, final long time,
+									 final int level, @Nullable final String data) {
+		builder.append(Level.toChar(level)).append('\t');
+		appendTime(builder, time);
+		builder.append('\t').append(data).append('\n');
+		return builder;
+	}
+
+	/**
+	 * Appends the local time of day as HH:mm:ss.SSS.
+	 */
+	@NonNull
+	public StringBuilder appendTime(@NonNull final StringBuilder builder, final long time) {
+		final long local = time + timeZone.getOffset(time);
+		int millis = (int) Math.floorMod(local, MILLIS_PER_DAY);
+		final int hours = millis / 3600000;
+		millis -= hours * 3600000;
+		final int minutes = millis / 60000;
+		millis -= minutes * 60000;
+		final int seconds = millis / 1000;
+		millis -= seconds * 1000;
+		append2(builder, hours).append(':');
+		append2(builder, minutes).append(':');
+		append2(builder, seconds).append('.');
+		if (millis < 100)
+			builder.append('0');
+		return append2(builder, millis);
+	}
+
+	/**
+	 * Appends the local date as yyyy-MM-dd.
+	 */
+	@NonNull
+	public StringBuilder appendDate(@NonNull final StringBuilder builder, final long time) {
+		final long local = time + timeZone.getOffset(time);
+		// Days since 1970-01-01 to civil date, see http://howardhinnant.github.io/date_algorithms.html
+		final long days = Math.floorDiv(local, MILLIS_PER_DAY) + 719468;
+		final long era = Math.floorDiv(days, 146097);
+		final long dayOfEra = days - era * 146097;
+		final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final long mp = (5 * dayOfYear + 2) / 153;
+		final int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		builder.append(year).append('-');
+		append2(builder, month).append('-');
+		return append2(builder, day);
+	}
+
+	@NonNull
+	private static StringBuilder append2(@NonNull final StringBuilder builder, final int value) {
+		if (value < 10)
+			builder.append('0');
+		return builder.append(value);
+	}
+}
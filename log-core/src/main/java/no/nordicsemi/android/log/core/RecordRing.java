@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A ring buffer of log records encoded in a {@link ByteBuffer}, written by one thread or
+ * process and read by another.
+ * <p>
+ * Each entry is stored as a record:
+ * <pre>
+ * -------------------------------------------------------------------------------------------
+ * | data length (int) | session id (long) | time (long) | level (int) | data (UTF-8 bytes) |
+ * -------------------------------------------------------------------------------------------
+ * </pre>
+ * Records are aligned to 4 bytes and never wrap around the end of the buffer. If a record does
+ * not fit at the end, a wrap marker is written and the record starts at offset 0.
+ * <p>
+ * Read and write positions are not stored in the buffer. They grow monotonically and have to be
+ * exchanged by the writer and the reader in a way which also guarantees that the data written
+ * before is visible to the other side. The writer never overwrites data before the last read
+ * position acknowledged by the reader.
+ */
+public class RecordRing {
+	/** The size of the record header, in bytes. */
+	public static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+	/** Data length value marking that the following records start at offset 0. */
+	private static final int WRAP = -1;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	public interface Consumer {
+		/**
+		 * Called for each record read from the ring.
+		 *
+		 * @param end the position after the record. Reading again from this position continues
+		 *            with the next record.
+		 */
+		void onRecord(long sessionId, long time, int level, @NonNull String data, long end);
+	}
+
+	private final ByteBuffer mBuffer;
+	private final int mCapacity;
+	private byte[] mScratch = new byte[256];
+
+	/**
+	 * Creates the ring on the buffer. The buffer is used from a single thread at a time.
+	 *
+	 * @param buffer the buffer. The capacity must be a multiple of 4.
+	 */
+	public RecordRing(@NonNull final ByteBuffer buffer) {
+		mBuffer = buffer;
+		mCapacity = buffer.capacity();
+	}
+
+	/**
+	 * Returns the size of the largest entry data that fits in the ring, in bytes.
+	 */
+	public int getMaxDataSize() {
+		return mCapacity - HEADER_SIZE;
+	}
+
+	/**
+	 * Writes the record to the ring.
+	 *
+	 * @param writePosition the current write position.
+	 * @param readPosition  the last read position acknowledged by the reader.
+	 * @param sessionId     the session id.
+	 * @param time          the entry time.
+	 * @param level         the entry level.
+	 * @param data          the entry data in UTF-8.
+	 * @return The new write position, or -1 if there is not enough free space.
+	 */
+	public long write(final long writePosition, final long readPosition,
+					  final long sessionId, final long time, final int level, @NonNull final byte[] data) {
+		final int size = align(HEADER_SIZE + data.length);
+		if (size > mCapacity)
+			return -1;
+
+		long position = writePosition;
+		int offset = (int) (position % mCapacity);
+		final int remaining = mCapacity - offset;
+		final int skip = remaining < size ? remaining : 0;
+		if (position + skip + size - readPosition > mCapacity)
+			return -1;
+		if (skip > 0) {
+			mBuffer.putInt(offset, WRAP);
+			position += skip;
+			offset = 0;
+		}
+		mBuffer.putInt(offset, data.length);
+		mBuffer.putLong(offset + 4, sessionId);
+		mBuffer.putLong(offset + 12, time);
+		mBuffer.putInt(offset + 20, level);
+		mBuffer.position(offset + HEADER_SIZE);
+		mBuffer.put(data);
+		return position + size;
+	}
+
+	/**
+	 * Reads all records between the given positions.
+	 * <p>
+	 * A record which does not fit in the buffer, or which ends after the write position,
+	 * can't have been written by {@link #write(long, long, long, long, int, byte[])}. The method
+	 * throws {@link IllegalStateException} when it finds one, after the records before it have
+	 * been passed to the consumer.
+	 *
+	 * @param readPosition  the position to start reading from.
+	 * @param writePosition the write position reported by the writer.
+	 * @param consumer      the consumer of the records.
+	 * @return The new read position.
+	 * @throws IllegalStateException if the ring is corrupted.
+	 */
+	public long read(final long readPosition, final long writePosition, @NonNull final Consumer consumer) {
+		long position = readPosition;
+		while (position < writePosition) {
+			final int offset = (int) (position % mCapacity);
+			final int length = mBuffer.getInt(offset);
+			if (length == WRAP) {
+				if (offset == 0 || position + mCapacity - offset > writePosition)
+					throw new IllegalStateException("Corrupted log ring at " + position);
+				position += mCapacity - offset;
+				continue;
+			}
+			if (length < 0 || length > getMaxDataSize()
+					|| offset + align(HEADER_SIZE + length) > mCapacity
+					|| position + align(HEADER_SIZE + length) > writePosition)
+				throw new IllegalStateException("Corrupted log ring at " + position);
+
+			final long sessionId = mBuffer.getLong(offset + 4);
+			final long time = mBuffer.getLong(offset + 12);
+			final int level = mBuffer.getInt(offset + 20);
+			if (mScratch.length < length) {
+				mScratch = new byte[Math.max(length, 2 * mScratch.length)];
+			}
+			mBuffer.position(offset + HEADER_SIZE);
+			mBuffer.get(mScratch, 0, length);
+			position += align(HEADER_SIZE + length);
+			consumer.onRecord(sessionId, time, level, new String(mScratch, 0, length, UTF_8), position);
+		}
+		return position;
+	}
+
+	/**
+	 * Encodes the entry data in UTF-8.
+	 */
+	@NonNull
+	public static byte[] encode(@NonNull final String data) {
+		return data.getBytes(UTF_8);
+	}
+
+	/**
+	 * Returns the size aligned up to 4 bytes.
+	 */
+	public static int align(final int size) {
+		return (size + 3) & ~3;
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.TimeZone;
+
+/**
+ * Reads and writes exported log sessions, used as traces for {@link TraceReplayer}.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ *     <li>the text format of the <code>session/#/log/content</code> Uri, see {@link LogFormatter},</li>
+ *     <li>a binary format: the {@link #BINARY_MAGIC} and version ints, followed by records
+ *     with the {@link RecordRing} layout, without alignment.</li>
+ * </ul>
+ * The text format contains only the time of day. The date is taken from the header and the
+ * day is incremented when the time goes back by more than 12 hours. The text format can't
+ * tell longer idle gaps apart: an entry written after a gap of more than 12 hours that
+ * crosses midnight, e.g. at 12:30 after an entry at 23:00, is dated a day too early, and
+ * gaps of whole days are lost. Use the binary format, which keeps the full time, for
+ * sessions with such gaps.
+ */
+public final class SessionTraces {
+	/** The first 4 bytes of a binary trace: "nRFL". */
+	public static final int BINARY_MAGIC = 0x6E52464C;
+	private static final int BINARY_VERSION = 1;
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private SessionTraces() {
+		// empty
+	}
+
+	/**
+	 * Returns whether the stream starts with the binary trace magic. The stream must support
+	 * mark and reset.
+	 */
+	public static boolean isBinary(@NonNull final InputStream in) throws IOException {
+		in.mark(4);
+		try {
+			return new DataInputStream(in).readInt() == BINARY_MAGIC;
+		} catch (final EOFException e) {
+			return false;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Reads entries from a session in the text format. Idle gaps longer than 12 hours may be
+	 * misdated, see the class description.
+	 *
+	 * @param reader   the reader.
+	 * @param timeZone the time zone the session was exported in.
+	 * @return The entries.
+	 * @throws IOException if reading failed.
+	 */
+	@NonNull
+	public static LogBatch readText(@NonNull final Reader reader, @NonNull final TimeZone timeZone)
+			throws IOException {
+		final BufferedReader in = reader instanceof BufferedReader
+				? (BufferedReader) reader : new BufferedReader(reader);
+		final LogBatch batch = new LogBatch();
+		long day = 0;
+		long lastTime = Long.MIN_VALUE;
+		int level = -1;
+		long time = 0;
+		StringBuilder data = null;
+		int lineNumber = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			if (lineNumber == 1) {
+				final long date = parseDate(line);
+				if (date >= 0) {
+					day = date - timeZone.getOffset(date);
+					continue;
+				}
+			}
+			final int lineLevel = line.length() > 2 && line.charAt(1) == '\t' ? Level.fromChar(line.charAt(0)) : -1;
+			final long timeOfDay = lineLevel >= 0 ? parseTime(line, 2) : -1;
+			if (timeOfDay < 0) {
+				// A continuation of a multi-line entry, or the session name
+				if (data != null)
+					data.append('\n').append(line);
+				continue;
+			}
+			if (data != null)
+				batch.add(time, level, data.toString());
+
+			long entryTime = day + timeOfDay;
+			if (lastTime != Long.MIN_VALUE && entryTime < lastTime - MILLIS_PER_DAY / 2) {
+				day += MILLIS_PER_DAY;
+				entryTime += MILLIS_PER_DAY;
+			}
+			lastTime = entryTime;
+			time = entryTime;
+			level = lineLevel;
+			data = new StringBuilder(line.length()).append(line, 15, line.length());
+		}
+		if (data != null)
+			batch.add(time, level, data.toString());
+		return batch;
+	}
+
+	/**
+	 * Reads entries from a trace in the binary format.
+	 *
+	 * @param in the input stream.
+	 * @return The entries.
+	 * @throws IOException if reading failed or the stream is not a binary trace.
+	 */
+	@NonNull
+	public static LogBatch readBinary(@NonNull final InputStream in) throws IOException {
+		final DataInputStream input = new DataInputStream(in);
+		if (input.readInt() != BINARY_MAGIC)
+			throw new IOException("Not a binary trace");
+		final int version = input.readInt();
+		if (version != BINARY_VERSION)
+			throw new IOException("Unsupported binary trace version: " + version);
+
+		final LogBatch batch = new LogBatch();
+		byte[] bytes = new byte[256];
+		while (true) {
+			final int length;
+			try {
+				length = input.readInt();
+			} catch (final EOFException e) {
+				break;
+			}
+			if (length < 0)
+				throw new IOException("Corrupted binary trace at entry " + batch.size());
+			input.readLong(); // session id
+			final long time = input.readLong();
+			final int level = input.readInt();
+			if (bytes.length < length)
+				bytes = new byte[Math.max(length, 2 * bytes.length)];
+			input.readFully(bytes, 0, length);
+			batch.add(time, level, new String(bytes, 0, length, "UTF-8"));
+		}
+		return batch;
+	}
+
+	/**
+	 * Writes the entries in the binary format.
+	 *
+	 * @param batch     the entries.
+	 * @param sessionId the session id written with each record.
+	 * @param out       the output stream.
+	 * @throws IOException if writing failed.
+	 */
+	public static void writeBinary(@NonNull final LogBatch batch, final long sessionId,
+								   @NonNull final OutputStream out) throws IOException {
+		final DataOutputStream output = new DataOutputStream(out);
+		output.writeInt(BINARY_MAGIC);
+		output.writeInt(BINARY_VERSION);
+		for (int i = 0; i < batch.size(); ++i) {
+			final byte[] data = RecordRing.encode(batch.getData(i));
+			output.writeInt(data.length);
+			output.writeLong(sessionId);
+			output.writeLong(batch.getTime(i));
+			output.writeInt(batch.getLevel(i));
+			output.write(data);
+		}
+		output.flush();
+	}
+
+	/**
+	 * Parses the date from the header line: "Application name, yyyy-MM-dd".
+	 *
+	 * @return The UTC time of midnight, or -1 if the line is not a header.
+	 */
+	private static long parseDate(@NonNull final String line) {
+		final int length = line.length();
+		if (length < 12 || line.charAt(length - 12) != ',' || line.charAt(length - 11) != ' '
+				|| line.charAt(length - 6) != '-' || line.charAt(length - 3) != '-')
+			return -1;
+		final int year = parseNumber(line, length - 10, 4);
+		final int month = parseNumber(line, length - 5, 2);
+		final int day = parseNumber(line, length - 2, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31)
+			return -1;
+		// Civil date to days since 1970-01-01, see http://howardhinnant.github.io/date_algorithms.html
+		final int y = month <= 2 ? year - 1 : year;
+		final int era = Math.floorDiv(y, 400);
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return (era * 146097L + dayOfEra - 719468) * MILLIS_PER_DAY;
+	}
+
+	/**
+	 * Parses the time of day: "HH:mm:ss.SSS" followed by a tab.
+	 *
+	 * @return The time of day in milliseconds, or -1 if the text is not a time.
+	 */
+	private static long parseTime(@NonNull final String line, final int offset) {
+		if (line.length() < offset + 13 || line.charAt(offset + 2) != ':' || line.charAt(offset + 5) != ':'
+				|| line.charAt(offset + 8) != '.' || line.charAt(offset + 12) != '\t')
+			return -1;
+		final int hours = parseNumber(line, offset, 2);
+		final int minutes = parseNumber(line, offset + 3, 2);
+		final int seconds = parseNumber(line, offset + 6, 2);
+		final int millis = parseNumber(line, offset + 9, 3);
+		if (hours < 0 || minutes < 0 || seconds < 0 || millis < 0)
+			return -1;
+		return ((hours * 60L + minutes) * 60 + seconds) * 1000 + millis;
+	}
+
+	private static int parseNumber(@NonNull final String text, final int offset, final int digits) {
+		int value = 0;
+		for (int i = offset; i < offset + digits; ++i) {
+			final char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value = value * 10 + c - '0';
+		}
+		return value;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable filter of log entries by tag and priority, e.g. the <code>android.util.Log</code>
+ * priority used by Timber.
+ * <p>
+ * The filter is built from a minimum priority, an optional list of allowed tags, a list of
+ * denied tags and per-tag minimum priorities. It's compiled into a single map from tag to
+ * the minimum priority, so that {@link #isLoggable(String, int)} is one hash lookup.
+ * <pre>
+ * TagFilter filter = new TagFilter.Builder()
+ *         .setMinPriority(Log.INFO)
+ *         .deny("Chatty")
+ *         .setMinPriority("BleManager", Log.VERBOSE)
+ *         .build();
+ * </pre>
+ * Precedence: a denied tag is never logged, a tag with its own minimum priority is logged
+ * from that priority, other tags are logged from the default minimum priority, unless a list
+ * of allowed tags is given and they are not on it. Entries without a tag are treated as other
+ * tags.
+ */
+public final class TagFilter {
+	/** Minimum priority which no entry has. */
+	private static final int NEVER = Integer.MAX_VALUE;
+
+	/** A filter that accepts all entries. */
+	public static final TagFilter ALL = new Builder().build();
+
+	private final Map<String, Integer> minPriorities;
+	private final int defaultMinPriority;
+
+	private TagFilter(@NonNull final Builder builder) {
+		final Map<String, Integer> map = new HashMap<>();
+		for (final String tag : builder.allowed)
+			map.put(tag, builder.minPriority);
+		map.putAll(builder.tagPriorities);
+		for (final String tag : builder.denied)
+			map.put(tag, NEVER);
+		minPriorities = map;
+		defaultMinPriority = builder.allowed.isEmpty() ? builder.minPriority : NEVER;
+	}
+
+	/**
+	 * Returns whether an entry with given tag and priority should be logged.
+	 *
+	 * @param tag      the tag, may be null.
+	 * @param priority the priority.
+	 */
+	public boolean isLoggable(@Nullable final String tag, final int priority) {
+		if (tag != null) {
+			final Integer min = minPriorities.get(tag);
+			if (min != null)
+				return priority >= min;
+		}
+		return priority >= defaultMinPriority;
+	}
+
+	public static final class Builder {
+		private int minPriority = Integer.MIN_VALUE;
+		private final Set<String> allowed = new HashSet<>();
+		private final Set<String> denied = new HashSet<>();
+		private final Map<String, Integer> tagPriorities = new HashMap<>();
+
+		/**
+		 * Sets the minimum priority of entries with tags without their own minimum priority.
+		 * By default all priorities are logged.
+		 */
+		@NonNull
+		public Builder setMinPriority(final int priority) {
+			minPriority = priority;
+			return this;
+		}
+
+		/**
+		 * Sets the minimum priority of entries with given tag. The tag is allowed.
+		 */
+		@NonNull
+		public Builder setMinPriority(@NonNull final String tag, final int priority) {
+			tagPriorities.put(tag, priority);
+			return this;
+		}
+
+		/**
+		 * Adds the tags to the list of allowed tags. If the list is not empty, only entries
+		 * with allowed tags, or tags with their own minimum priority, are logged.
+		 */
+		@NonNull
+		public Builder allow(@NonNull final String... tags) {
+			for (final String tag : tags)
+				allowed.add(tag);
+			return this;
+		}
+
+		/**
+		 * Adds the tags to the list of denied tags. Entries with these tags are never logged.
+		 */
+		@NonNull
+		public Builder deny(@NonNull final String... tags) {
+			for (final String tag : tags)
+				denied.add(tag);
+			return this;
+		}
+
+		@NonNull
+		public TagFilter build() {
+			return new TagFilter(this);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of <code>[&lt;tag&gt;] </code> message prefixes, so that adding the tag to a message
+ * creates only the resulting string. The number of cached tags is limited, prefixes of other
+ * tags are created for each message. The cache is thread safe.
+ */
+public final class TagPrefixCache {
+	/** The default maximum number of cached tags. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final ConcurrentHashMap<String, String> prefixes = new ConcurrentHashMap<>();
+	private final int capacity;
+
+	public TagPrefixCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param capacity the maximum number of cached tags.
+	 */
+	public TagPrefixCache(final int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the message prefixed with the tag, the same as {@link Messages#withTag(String, String)}.
+	 *
+	 * @param tag     the tag, if null or empty the message is returned unchanged.
+	 * @param message the message.
+	 * @return The message with the tag.
+	 */
+	@NonNull
+	public String withTag(@Nullable final String tag, @NonNull final String message) {
+		if (tag == null || tag.isEmpty())
+			return message;
+		return getPrefix(tag).concat(message);
+	}
+
+	/**
+	 * Returns the prefix for the tag: <code>[&lt;tag&gt;] </code>.
+	 */
+	@NonNull
+	public String getPrefix(@NonNull final String tag) {
+		String prefix = prefixes.get(tag);
+		if (prefix == null) {
+			prefix = "[" + tag + "] ";
+			if (prefixes.size() < capacity)
+				prefixes.putIfAbsent(tag, prefix);
+		}
+		return prefix;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a recorded session into a {@link LogSink}, keeping the gaps between entries.
+ * This reproduces the shape of real traffic, like bursts of notifications and idle periods,
+ * for load testing.
+ * <p>
+ * Entries are written one by one, at the original pace ({@link #REAL_TIME}), scaled by a speed
+ * factor, or as fast as possible ({@link #MAX_SPEED}). Entry times are moved to the time of the
+ * replay. The latency of each write is measured.
+ */
+public final class TraceReplayer {
+	/** Replays the trace at the original pace. */
+	public static final double REAL_TIME = 1.0;
+	/** Replays the trace without waiting between entries. */
+	public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+	private final LogSink sink;
+
+	public TraceReplayer(@NonNull final LogSink sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Replays the trace. Returns when all entries have been written.
+	 *
+	 * @param trace the entries, in time order.
+	 * @param speed the speed factor, e.g. 2.0 to replay twice as fast, or {@link #MAX_SPEED}.
+	 * @return The replay statistics.
+	 */
+	@NonNull
+	public Result replay(@NonNull final LogBatch trace, final double speed) {
+		if (!(speed > 0))
+			throw new IllegalArgumentException("Speed must be greater than 0");
+
+		final int count = trace.size();
+		final long[] latencies = new long[count];
+		long maxLag = 0;
+		final long firstTime = count > 0 ? trace.getTime(0) : 0;
+		final long wallStart = System.currentTimeMillis();
+		final long start = System.nanoTime();
+		for (int i = 0; i < count; ++i) {
+			final long offset = trace.getTime(i) - firstTime;
+			if (speed != MAX_SPEED) {
+				final long due = start + (long) (offset * 1_000_000L / speed);
+				long wait;
+				while ((wait = due - System.nanoTime()) > 0)
+					LockSupport.parkNanos(wait);
+				maxLag = Math.max(maxLag, System.nanoTime() - due);
+			}
+			final long writeStart = System.nanoTime();
+			sink.write(wallStart + offset, trace.getLevel(i), trace.getData(i));
+			latencies[i] = System.nanoTime() - writeStart;
+		}
+		final long duration = System.nanoTime() - start;
+		Arrays.sort(latencies);
+		return new Result(latencies, duration, maxLag);
+	}
+
+	/**
+	 * Statistics of a replay.
+	 */
+	public static final class Result {
+		private final long[] sortedLatencies;
+		private final long durationNanos;
+		private final long maxLagNanos;
+
+		private Result(@NonNull final long[] sortedLatencies, final long durationNanos,
+					   final long maxLagNanos) {
+			this.sortedLatencies = sortedLatencies;
+			this.durationNanos = durationNanos;
+			this.maxLagNanos = maxLagNanos;
+		}
+
+		/**
+		 * Returns the number of entries written.
+		 */
+		public int getEntryCount() {
+			return sortedLatencies.length;
+		}
+
+		/**
+		 * Returns the duration of the replay, in nanoseconds.
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * Returns the number of entries written per second.
+		 */
+		public double getEntriesPerSecond() {
+			return durationNanos > 0 ? sortedLatencies.length * 1e9 / durationNanos : 0;
+		}
+
+		/**
+		 * Returns the write latency, in nanoseconds, below which the given percentage of
+		 * writes finished.
+		 *
+		 * @param percentile the percentile, from 0 to 100.
+		 */
+		public long getLatencyAtPercentile(final double percentile) {
+			if (sortedLatencies.length == 0)
+				return 0;
+			final int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+			return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+		}
+
+		/**
+		 * Returns the longest time a write started after its scheduled time, in nanoseconds.
+		 * A high value means the sink could not keep up with the trace at the given speed.
+		 */
+		public long getMaxLagNanos() {
+			return maxLagNanos;
+		}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"entries=%d, duration=%.3fs, throughput=%.1f entries/s, " +
+							"p50=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus, max lag=%.1fms",
+					getEntryCount(), durationNanos / 1e9, getEntriesPerSecond(),
+					getLatencyAtPercentile(50) / 1e3, getLatencyAtPercentile(99) / 1e3,
+					getLatencyAtPercentile(99.9) / 1e3, getLatencyAtPercentile(100) / 1e3,
+					maxLagNanos / 1e6);
+		}
+	}
+}
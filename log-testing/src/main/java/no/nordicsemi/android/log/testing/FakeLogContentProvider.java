@@ -0,0 +1,563 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.testing;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.core.LogFormatter;
+
+/**
+ * A stand-in for the nRF Logger application provider, implementing the {@link LogContract}
+ * Uri space on an in-memory SQLite database. It allows testing code using
+ * {@link no.nordicsemi.android.log.Logger} with {@link LogContract#AUTHORITY} sessions without
+ * nRF Logger installed, e.g. on Robolectric:
+ * <pre>
+ * FakeLogContentProvider provider =
+ *         Robolectric.setupContentProvider(FakeLogContentProvider.class, LogContract.AUTHORITY);
+ * LogSession session = Logger.newSession(context, "profile", "key", "name");
+ * </pre>
+ * Supported Uris, see {@link no.nordicsemi.android.log.Logger}:
+ * <ul>
+ * <li><b>application</b>, <b>application/[APP_ID]</b> - applications. Inserting an existing
+ * application returns its Uri.</li>
+ * <li><b>session</b>, <b>session/[SESSION_ID]</b>, <b>session/key/[KEY]</b>,
+ * <b>session/key/[KEY]/[NUMBER]</b>, <b>session/application/[APP_ID]</b> - sessions.
+ * Inserting to <b>session/key/[KEY]</b> creates a session with the next number for the key,
+ * and a "date" session (key "!date", number 0) for the first session of the application on
+ * a given day. Name, description and mark may be updated.</li>
+ * <li><b>.../log</b> and <b>.../log/content</b> after a session Uri - log entries of the session,
+ * and the session as text.</li>
+ * </ul>
+ * Deleting a session or an application deletes its log entries. Extensions of the
+ * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider}, like session
+ * statistics or {@link LogContract.Log#METHOD_BULK_INSERT}, are not supported, as in nRF Logger.
+ * <p>
+ * The provider is not meant to be used in production.
+ */
+public class FakeLogContentProvider extends ContentProvider {
+	/** The key of date sessions. */
+	public static final String DATE_SESSION_KEY = "!date";
+
+	private static final String TABLE_APPLICATIONS = "applications";
+	private static final String TABLE_SESSIONS = "sessions";
+	private static final String TABLE_LOG = "log";
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+	private static final int APPLICATIONS = 1;
+	private static final int APPLICATION_ID = 2;
+	private static final int SESSIONS = 10;
+	private static final int SESSION_ID = 11;
+	private static final int SESSION_ID_LOG = 12;
+	private static final int SESSION_ID_LOG_CONTENT = 13;
+	private static final int SESSION_KEY = 14;
+	private static final int SESSION_KEY_NUMBER = 15;
+	private static final int SESSION_KEY_NUMBER_LOG = 16;
+	private static final int SESSION_KEY_NUMBER_LOG_CONTENT = 17;
+	private static final int SESSION_APPLICATION = 18;
+
+	private final UriMatcher mUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+	private DatabaseHelper mDatabaseHelper;
+
+	private static final class DatabaseHelper extends SQLiteOpenHelper {
+		private DatabaseHelper(@Nullable final Context context) {
+			// In-memory database
+			super(context, null, null, 1);
+		}
+
+		@Override
+		public void onCreate(final SQLiteDatabase db) {
+			db.execSQL("CREATE TABLE " + TABLE_APPLICATIONS + " (" +
+					LogContract.Application._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+					LogContract.Application.APPLICATION + " TEXT NOT NULL UNIQUE)");
+			db.execSQL("CREATE TABLE " + TABLE_SESSIONS + " (" +
+					LogContract.Session._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+					LogContract.Session.KEY + " TEXT NOT NULL, " +
+					LogContract.Session.NAME + " TEXT, " +
+					LogContract.Session.APPLICATION_ID + " INTEGER, " +
+					LogContract.Session.CREATED_AT + " INTEGER NOT NULL, " +
+					LogContract.Session.NUMBER + " INTEGER NOT NULL, " +
+					LogContract.Session.DESCRIPTION + " TEXT, " +
+					LogContract.Session.MARK + " INTEGER NOT NULL DEFAULT 0)");
+			db.execSQL("CREATE TABLE " + TABLE_LOG + " (" +
+					LogContract.Log._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+					LogContract.Log.SESSION_ID + " INTEGER NOT NULL, " +
+					LogContract.Log.TIME + " INTEGER NOT NULL, " +
+					LogContract.Log.LEVEL + " INTEGER NOT NULL, " +
+					LogContract.Log.DATA + " TEXT NOT NULL)");
+			db.execSQL("CREATE INDEX log_session_id_index ON " + TABLE_LOG + " (" +
+					LogContract.Log.SESSION_ID + ", " + LogContract.Log.TIME + ")");
+		}
+
+		@Override
+		public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion) {
+			// The database is in memory
+		}
+	}
+
+	@Override
+	public boolean onCreate() {
+		mDatabaseHelper = new DatabaseHelper(getContext());
+		return true;
+	}
+
+	@Override
+	public void attachInfo(final Context context, final android.content.pm.ProviderInfo info) {
+		super.attachInfo(context, info);
+		final String authority = info != null && info.authority != null
+				? info.authority.split(";")[0] : LogContract.AUTHORITY;
+		final UriMatcher matcher = mUriMatcher;
+		matcher.addURI(authority, "application", APPLICATIONS);
+		matcher.addURI(authority, "application/#", APPLICATION_ID);
+		matcher.addURI(authority, "session", SESSIONS);
+		matcher.addURI(authority, "session/#", SESSION_ID);
+		matcher.addURI(authority, "session/#/log", SESSION_ID_LOG);
+		matcher.addURI(authority, "session/#/log/content", SESSION_ID_LOG_CONTENT);
+		matcher.addURI(authority, "session/key/*", SESSION_KEY);
+		matcher.addURI(authority, "session/key/*/#", SESSION_KEY_NUMBER);
+		matcher.addURI(authority, "session/key/*/#/log", SESSION_KEY_NUMBER_LOG);
+		matcher.addURI(authority, "session/key/*/#/log/content", SESSION_KEY_NUMBER_LOG_CONTENT);
+		matcher.addURI(authority, "session/application/#", SESSION_APPLICATION);
+	}
+
+	/**
+	 * Removes all applications, sessions and log entries.
+	 */
+	public void reset() {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		db.delete(TABLE_LOG, null, null);
+		db.delete(TABLE_SESSIONS, null, null);
+		db.delete(TABLE_APPLICATIONS, null, null);
+	}
+
+	@Nullable
+	@Override
+	public String getType(@NonNull final Uri uri) {
+		switch (mUriMatcher.match(uri)) {
+			case APPLICATIONS:
+				return LogContract.Application.CONTENT_TYPE;
+			case APPLICATION_ID:
+				return LogContract.Application.CONTENT_ITEM_TYPE;
+			case SESSIONS:
+			case SESSION_KEY:
+			case SESSION_APPLICATION:
+				return LogContract.Session.CONTENT_TYPE;
+			case SESSION_ID:
+			case SESSION_KEY_NUMBER:
+				return LogContract.Session.CONTENT_ITEM_TYPE;
+			case SESSION_ID_LOG:
+			case SESSION_KEY_NUMBER_LOG:
+				return LogContract.Log.CONTENT_TYPE;
+		}
+		return null;
+	}
+
+	@Nullable
+	@Override
+	public Cursor query(@NonNull final Uri uri, @Nullable final String[] projection,
+						@Nullable final String selection, @Nullable final String[] selectionArgs,
+						@Nullable final String sortOrder) {
+		final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
+		final int match = mUriMatcher.match(uri);
+		final String table;
+		final String where;
+		final String[] args;
+		switch (match) {
+			case APPLICATIONS:
+				table = TABLE_APPLICATIONS;
+				where = null;
+				args = null;
+				break;
+			case APPLICATION_ID:
+				table = TABLE_APPLICATIONS;
+				where = LogContract.Application._ID + "=?";
+				args = new String[] { uri.getLastPathSegment() };
+				break;
+			case SESSIONS:
+				table = TABLE_SESSIONS;
+				where = null;
+				args = null;
+				break;
+			case SESSION_ID:
+			case SESSION_KEY_NUMBER:
+				table = TABLE_SESSIONS;
+				where = LogContract.Session._ID + "=?";
+				args = new String[] { String.valueOf(getSessionId(db, uri, match)) };
+				break;
+			case SESSION_KEY:
+				table = TABLE_SESSIONS;
+				where = LogContract.Session.KEY + "=?";
+				args = new String[] { uri.getPathSegments().get(2) };
+				break;
+			case SESSION_APPLICATION:
+				table = TABLE_SESSIONS;
+				where = LogContract.Session.APPLICATION_ID + "=?";
+				args = new String[] { uri.getLastPathSegment() };
+				break;
+			case SESSION_ID_LOG:
+			case SESSION_KEY_NUMBER_LOG:
+				table = TABLE_LOG;
+				where = LogContract.Log.SESSION_ID + "=?";
+				args = new String[] { String.valueOf(getSessionId(db, uri, match)) };
+				break;
+			case SESSION_ID_LOG_CONTENT:
+			case SESSION_KEY_NUMBER_LOG_CONTENT:
+				return queryContent(db, getSessionId(db, uri, match));
+			default:
+				throw new IllegalArgumentException("Unknown Uri: " + uri);
+		}
+		final Cursor cursor = db.query(table, projection, concatenateWhere(where, selection),
+				appendSelectionArgs(args, selectionArgs), null, null, sortOrder);
+		if (cursor != null && getContext() != null)
+			cursor.setNotificationUri(getContext().getContentResolver(), uri);
+		return cursor;
+	}
+
+	@NonNull
+	private Cursor queryContent(@NonNull final SQLiteDatabase db, final long sessionId) {
+		final StringBuilder builder = new StringBuilder();
+		final LogFormatter formatter = new LogFormatter(TimeZone.getDefault());
+		final String[] args = new String[] { String.valueOf(sessionId) };
+		try (Cursor c = db.rawQuery("SELECT s." + LogContract.Session.KEY + ", s." + LogContract.Session.NAME +
+				", s." + LogContract.Session.CREATED_AT + ", a." + LogContract.Application.APPLICATION +
+				" FROM " + TABLE_SESSIONS + " s LEFT OUTER JOIN " + TABLE_APPLICATIONS + " a ON (a." +
+				LogContract.Application._ID + " = s." + LogContract.Session.APPLICATION_ID + ")" +
+				" WHERE s." + LogContract.Session._ID + "=?", args)) {
+			if (c.moveToNext()) {
+				final String appName = c.isNull(3) ? "" : c.getString(3);
+				formatter.appendHeader(builder, appName, c.getLong(2), c.getString(1), c.getString(0));
+			}
+		}
+		try (Cursor c = db.query(TABLE_LOG,
+				new String[] { LogContract.Log.TIME, LogContract.Log.LEVEL, LogContract.Log.DATA },
+				LogContract.Log.SESSION_ID + "=?", args, null, null, LogContract.Log.TIME + " ASC")) {
+			while (c.moveToNext())
+				formatter.appendEntry(builder, c.getLong(0), c.getInt(1), c.getString(2));
+		}
+		final MatrixCursor cursor = new MatrixCursor(new String[] { LogContract.Session.Content.CONTENT });
+		cursor.addRow(new String[] { builder.toString() });
+		return cursor;
+	}
+
+	@Nullable
+	@Override
+	public Uri insert(@NonNull final Uri uri, @Nullable final ContentValues values) {
+		final Uri result = insertInternal(uri, values != null ? values : new ContentValues());
+		if (result != null)
+			notifyChange(uri);
+		return result;
+	}
+
+	@Override
+	public int bulkInsert(@NonNull final Uri uri, @NonNull final ContentValues[] values) {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		int count = 0;
+		db.beginTransaction();
+		try {
+			for (final ContentValues value : values) {
+				if (value != null && insertInternal(uri, value) != null)
+					count++;
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		if (count > 0)
+			notifyChange(uri);
+		return count;
+	}
+
+	@NonNull
+	@Override
+	public ContentProviderResult[] applyBatch(@NonNull final ArrayList<ContentProviderOperation> operations)
+			throws OperationApplicationException {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		db.beginTransaction();
+		try {
+			final ContentProviderResult[] results = super.applyBatch(operations);
+			db.setTransactionSuccessful();
+			return results;
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	@Nullable
+	private Uri insertInternal(@NonNull final Uri uri, @NonNull final ContentValues values) {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		final int match = mUriMatcher.match(uri);
+		switch (match) {
+			case APPLICATIONS: {
+				final String application = values.getAsString(LogContract.Application.APPLICATION);
+				if (application == null)
+					return null;
+				long id = queryLong(db, "SELECT " + LogContract.Application._ID + " FROM " + TABLE_APPLICATIONS +
+						" WHERE " + LogContract.Application.APPLICATION + "=?", application);
+				if (id < 0) {
+					final ContentValues app = new ContentValues();
+					app.put(LogContract.Application.APPLICATION, application);
+					id = db.insert(TABLE_APPLICATIONS, null, app);
+				}
+				return id < 0 ? null : ContentUris.withAppendedId(uri, id);
+			}
+			case SESSION_KEY: {
+				final String key = uri.getPathSegments().get(2);
+				final Long applicationId = values.getAsLong(LogContract.Session.APPLICATION_ID);
+				final long now = System.currentTimeMillis();
+				db.beginTransaction();
+				try {
+					if (applicationId != null)
+						insertDateSession(db, applicationId, now);
+					final long number = queryLong(db, "SELECT COALESCE(MAX(" + LogContract.Session.NUMBER +
+							"), 0) + 1 FROM " + TABLE_SESSIONS + " WHERE " + LogContract.Session.KEY + "=?", key);
+					final ContentValues session = new ContentValues();
+					session.put(LogContract.Session.KEY, key);
+					session.put(LogContract.Session.NAME, values.getAsString(LogContract.Session.NAME));
+					session.put(LogContract.Session.APPLICATION_ID, applicationId);
+					session.put(LogContract.Session.CREATED_AT, now);
+					session.put(LogContract.Session.NUMBER, number);
+					session.put(LogContract.Session.DESCRIPTION, values.getAsString(LogContract.Session.DESCRIPTION));
+					final long id = db.insert(TABLE_SESSIONS, null, session);
+					db.setTransactionSuccessful();
+					if (id < 0)
+						return null;
+					return ContentUris.withAppendedId(sessionsUri(uri), id);
+				} finally {
+					db.endTransaction();
+				}
+			}
+			case SESSION_ID_LOG:
+			case SESSION_KEY_NUMBER_LOG: {
+				final String data = values.getAsString(LogContract.Log.DATA);
+				final long sessionId = getSessionId(db, uri, match);
+				if (data == null || sessionId < 0)
+					return null;
+				final Long time = values.getAsLong(LogContract.Log.TIME);
+				final Integer level = values.getAsInteger(LogContract.Log.LEVEL);
+				final ContentValues entry = new ContentValues();
+				entry.put(LogContract.Log.SESSION_ID, sessionId);
+				entry.put(LogContract.Log.TIME, time != null ? time : System.currentTimeMillis());
+				entry.put(LogContract.Log.LEVEL, level != null ? level : LogContract.Log.Level.DEBUG);
+				entry.put(LogContract.Log.DATA, data);
+				final long id = db.insert(TABLE_LOG, null, entry);
+				return id < 0 ? null : ContentUris.withAppendedId(uri, id);
+			}
+			default:
+				throw new IllegalArgumentException("Unsupported Uri: " + uri);
+		}
+	}
+
+	/**
+	 * Inserts a date session for the application, unless one was already created today.
+	 */
+	private void insertDateSession(@NonNull final SQLiteDatabase db, final long applicationId, final long now) {
+		final long local = now + TimeZone.getDefault().getOffset(now);
+		final long startOfDay = now - Math.floorMod(local, MILLIS_PER_DAY);
+		final long existing = queryLong(db, "SELECT " + LogContract.Session._ID + " FROM " + TABLE_SESSIONS +
+						" WHERE " + LogContract.Session.KEY + "=? AND " + LogContract.Session.APPLICATION_ID +
+						"=? AND " + LogContract.Session.CREATED_AT + ">=?",
+				DATE_SESSION_KEY, String.valueOf(applicationId), String.valueOf(startOfDay));
+		if (existing >= 0)
+			return;
+		final ContentValues session = new ContentValues();
+		session.put(LogContract.Session.KEY, DATE_SESSION_KEY);
+		session.put(LogContract.Session.APPLICATION_ID, applicationId);
+		session.put(LogContract.Session.CREATED_AT, now);
+		session.put(LogContract.Session.NUMBER, 0);
+		db.insert(TABLE_SESSIONS, null, session);
+	}
+
+	@Override
+	public int update(@NonNull final Uri uri, @Nullable final ContentValues values,
+					  @Nullable final String selection, @Nullable final String[] selectionArgs) {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		final int match = mUriMatcher.match(uri);
+		if (match != SESSION_ID && match != SESSION_KEY_NUMBER)
+			throw new UnsupportedOperationException("Updating log is not supported. You can not change the history.");
+		if (values == null)
+			return 0;
+
+		// Only the name, description and mark may be changed
+		final ContentValues session = new ContentValues();
+		for (final String column : new String[] {
+				LogContract.Session.NAME, LogContract.Session.DESCRIPTION, LogContract.Session.MARK }) {
+			if (values.containsKey(column))
+				session.put(column, values.getAsString(column));
+		}
+		if (session.size() == 0)
+			return 0;
+		final int updated = db.update(TABLE_SESSIONS, session,
+				concatenateWhere(LogContract.Session._ID + "=?", selection),
+				appendSelectionArgs(new String[] { String.valueOf(getSessionId(db, uri, match)) }, selectionArgs));
+		if (updated > 0)
+			notifyChange(uri);
+		return updated;
+	}
+
+	@Override
+	public int delete(@NonNull final Uri uri, @Nullable final String selection,
+					  @Nullable final String[] selectionArgs) {
+		final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+		final int match = mUriMatcher.match(uri);
+		final String where;
+		final String[] args;
+		switch (match) {
+			case SESSIONS:
+				where = selection;
+				args = selectionArgs;
+				break;
+			case SESSION_ID:
+			case SESSION_KEY_NUMBER:
+				where = concatenateWhere(LogContract.Session._ID + "=?", selection);
+				args = appendSelectionArgs(new String[] { String.valueOf(getSessionId(db, uri, match)) }, selectionArgs);
+				break;
+			case SESSION_KEY:
+				where = concatenateWhere(LogContract.Session.KEY + "=?", selection);
+				args = appendSelectionArgs(new String[] { uri.getPathSegments().get(2) }, selectionArgs);
+				break;
+			case SESSION_APPLICATION:
+				where = concatenateWhere(LogContract.Session.APPLICATION_ID + "=?", selection);
+				args = appendSelectionArgs(new String[] { uri.getLastPathSegment() }, selectionArgs);
+				break;
+			case APPLICATION_ID:
+				where = null;
+				args = null;
+				break;
+			default:
+				throw new UnsupportedOperationException("Deleting log entries is not supported. Delete the session instead.");
+		}
+
+		int deleted;
+		db.beginTransaction();
+		try {
+			if (match == APPLICATION_ID) {
+				final String[] id = new String[] { uri.getLastPathSegment() };
+				db.delete(TABLE_SESSIONS, LogContract.Session.APPLICATION_ID + "=?", id);
+				deleted = db.delete(TABLE_APPLICATIONS, concatenateWhere(LogContract.Application._ID + "=?", selection),
+						appendSelectionArgs(id, selectionArgs));
+			} else {
+				deleted = db.delete(TABLE_SESSIONS, where, args);
+			}
+			// Remove entries of deleted sessions
+			db.delete(TABLE_LOG, LogContract.Log.SESSION_ID + " NOT IN (SELECT " + LogContract.Session._ID +
+					" FROM " + TABLE_SESSIONS + ")", null);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+		if (deleted > 0)
+			notifyChange(uri);
+		return deleted;
+	}
+
+	/**
+	 * Returns the id of the session from a session/# or session/key/[KEY]/# Uri, or -1 if
+	 * the session does not exist.
+	 */
+	private long getSessionId(@NonNull final SQLiteDatabase db, @NonNull final Uri uri, final int match) {
+		final List<String> segments = uri.getPathSegments();
+		switch (match) {
+			case SESSION_ID:
+			case SESSION_ID_LOG:
+			case SESSION_ID_LOG_CONTENT:
+				return Long.parseLong(segments.get(1));
+			default:
+				return queryLong(db, "SELECT " + LogContract.Session._ID + " FROM " + TABLE_SESSIONS +
+								" WHERE " + LogContract.Session.KEY + "=? AND " + LogContract.Session.NUMBER + "=?",
+						segments.get(2), segments.get(3));
+		}
+	}
+
+	/**
+	 * Returns the value of the first column of the first row, or -1 if there are no rows.
+	 */
+	private static long queryLong(@NonNull final SQLiteDatabase db, @NonNull final String sql,
+								  @NonNull final String... args) {
+		try (Cursor c = db.rawQuery(sql, args)) {
+			return c.moveToNext() && !c.isNull(0) ? c.getLong(0) : -1;
+		}
+	}
+
+	@NonNull
+	private static Uri sessionsUri(@NonNull final Uri uri) {
+		return new Uri.Builder()
+				.scheme(uri.getScheme())
+				.authority(uri.getAuthority())
+				.appendEncodedPath(LogContract.Session.SESSION_CONTENT_DIRECTORY)
+				.build();
+	}
+
+	private void notifyChange(@NonNull final Uri uri) {
+		final Context context = getContext();
+		if (context != null)
+			context.getContentResolver().notifyChange(uri, null);
+	}
+
+	@Nullable
+	private static String concatenateWhere(@Nullable final String a, @Nullable final String b) {
+		if (a == null || a.isEmpty())
+			return b;
+		if (b == null || b.isEmpty())
+			return a;
+		return "(" + a + ") AND (" + b + ")";
+	}
+
+	@Nullable
+	private static String[] appendSelectionArgs(@Nullable final String[] a, @Nullable final String[] b) {
+		if (a == null || a.length == 0)
+			return b;
+		if (b == null || b.length == 0)
+			return a;
+		final String[] result = new String[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package no.nordicsemi.android.log.timber;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import no.nordicsemi.android.log.AsyncLogWriter;
+import no.nordicsemi.android.log.ILogSession;
+import timber.log.Timber;
+
+/**
+ * A {@link nRFLoggerTree} which does not block the logging thread. Log entries are handed to
+ * an {@link AsyncLogWriter}, which writes them on a background thread in bulk inserts, keeping
+ * their order and time.
+ * <p>
+ * Use {@link #uproot()} instead of {@link Timber#uproot(Timber.Tree)} to write the queued
+ * entries and stop the writer thread, or {@link #flush(long)} to wait until they are written.
+ * <pre>
+ * nRFLoggerAsyncTree tree = new nRFLoggerAsyncTree(context, "key", "name");
+ * Timber.plant(tree);
+ * ...
+ * tree.uproot();
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class nRFLoggerAsyncTree extends nRFLoggerTree {
+	@NonNull
+	private final AsyncLogWriter writer;
+	private final boolean ownWriter;
+
+	/**
+	 * Creates a new instance of nRFLoggerAsyncTree with its own writer thread.
+	 *
+	 * @param context The context.
+	 * @param key The key of the session. Sessions with the same key will be grouped together.
+	 * @param name An optional name of the session.
+	 */
+	public nRFLoggerAsyncTree(final @NonNull Context context,
+							  final @NonNull String key, final @Nullable String name) {
+		super(context, key, name);
+		this.writer = new AsyncLogWriter();
+		this.ownWriter = true;
+	}
+
+	/**
+	 * Creates a new instance of nRFLoggerAsyncTree with its own writer thread.
+	 *
+	 * @param context The context.
+	 * @param profile The profile name, which will be concatenated to the app's name in nRF Logger.
+	 * @param key The key of the session. Sessions with the same key will be grouped together.
+	 * @param name An optional name of the session.
+	 */
+	public nRFLoggerAsyncTree(final @NonNull Context context,
+							  final @Nullable String profile,
+							  final @NonNull String key, final @Nullable String name) {
+		super(context, profile, key, name);
+		this.writer = new AsyncLogWriter();
+		this.ownWriter = true;
+	}
+
+	/**
+	 * Creates a new instance of nRFLoggerAsyncTree with its own writer thread.
+	 *
+	 * @param context The context.
+	 * @param uri The URI of the session. If null, the logs will be ignored.
+	 */
+	public nRFLoggerAsyncTree(final @NonNull Context context, final @Nullable Uri uri) {
+		super(context, uri);
+		this.writer = new AsyncLogWriter();
+		this.ownWriter = true;
+	}
+
+	/**
+	 * Creates a new instance of nRFLoggerAsyncTree with its own writer thread.
+	 *
+	 * @param session The log session. If null, the logs will be ignored.
+	 */
+	public nRFLoggerAsyncTree(final @Nullable ILogSession session) {
+		this(session, new AsyncLogWriter(), true);
+	}
+
+	/**
+	 * Creates a new instance of nRFLoggerAsyncTree using the given writer. The writer may be
+	 * shared by multiple trees, it's not closed by {@link #uproot()}.
+	 *
+	 * @param session The log session. If null, the logs will be ignored.
+	 * @param writer The writer.
+	 */
+	public nRFLoggerAsyncTree(final @Nullable ILogSession session, final @NonNull AsyncLogWriter writer) {
+		this(session, writer, false);
+	}
+
+	private nRFLoggerAsyncTree(final @Nullable ILogSession session,
+							   final @NonNull AsyncLogWriter writer, final boolean ownWriter) {
+		super(session);
+		this.writer = writer;
+		this.ownWriter = ownWriter;
+	}
+
+	// Public API
+
+	/**
+	 * Waits until all entries logged before the call have been written.
+	 *
+	 * @param timeoutMillis The maximum time to wait, in milliseconds.
+	 * @return True if the entries were written, false if the timeout elapsed.
+	 * @throws InterruptedException if the thread was interrupted while waiting.
+	 */
+	public boolean flush(final long timeoutMillis) throws InterruptedException {
+		return writer.flush(timeoutMillis);
+	}
+
+	/**
+	 * Removes the tree from Timber, if planted, and writes all queued entries. If the tree has its own
+	 * writer, its thread is stopped. The method blocks until the entries are written.
+	 */
+	public void uproot() {
+		if (Timber.forest().contains(this))
+			Timber.uproot(this);
+		if (ownWriter) {
+			writer.close();
+		} else {
+			try {
+				writer.flush(Long.MAX_VALUE / 2);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	// Tree API
+
+	@Override
+	/* package */ void write(@NonNull final ILogSession session, final int level, @NonNull final String message) {
+		writer.write(session, level, message);
+	}
+}
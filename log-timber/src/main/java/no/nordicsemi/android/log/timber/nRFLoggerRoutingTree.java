@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package no.nordicsemi.android.log.timber;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import no.nordicsemi.android.log.AsyncLogWriter;
+import no.nordicsemi.android.log.ILogSession;
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.core.TagFilter;
+import no.nordicsemi.android.log.core.TagPrefixCache;
+import no.nordicsemi.android.log.timber.annotation.LogPriority;
+import timber.log.Timber;
+
+/**
+ * A Timber tree that logs each message to one of multiple log sessions, e.g. one per connected
+ * device. Plant a single routing tree instead of one {@link nRFLoggerTree} per session, so that
+ * a Timber call does one lookup and one write, instead of being handled by every tree.
+ * <p>
+ * The session is chosen in the following order:
+ * <ol>
+ *     <li>the session routed for the key set on the current thread with {@link #setThreadKey(String)},</li>
+ *     <li>the session routed for the tag,</li>
+ *     <li>the default session.</li>
+ * </ol>
+ * If none is found, the message is not logged.
+ * <pre>
+ * nRFLoggerRoutingTree tree = new nRFLoggerRoutingTree();
+ * tree.route("DeviceA", sessionA);
+ * tree.routeKey(deviceB.getAddress(), sessionB);
+ * Timber.plant(tree);
+ * ...
+ * Timber.tag("DeviceA").i("Connected");            // logged to sessionA
+ * nRFLoggerRoutingTree.setThreadKey(deviceB.getAddress());
+ * try {
+ *     Timber.i("Connected");                       // logged to sessionB
+ * } finally {
+ *     nRFLoggerRoutingTree.clearThreadKey();
+ * }
+ * </pre>
+ * Routes are kept in immutable maps, replaced on each change, so the lookups do not lock.
+ * Changing routes is meant to be rare, e.g. when a device connects or disconnects.
+ */
+@SuppressWarnings("unused")
+public class nRFLoggerRoutingTree extends Timber.Tree {
+	private static final ThreadLocal<String> threadKey = new ThreadLocal<>();
+
+	@NonNull
+	private volatile Map<String, ILogSession> tagRoutes = Collections.emptyMap();
+	@NonNull
+	private volatile Map<String, ILogSession> keyRoutes = Collections.emptyMap();
+	@Nullable
+	private volatile ILogSession defaultSession;
+
+	@Nullable
+	private final AsyncLogWriter writer;
+
+	private boolean logTags = true;
+
+	@NonNull
+	private TagFilter filter = TagFilter.ALL;
+
+	private final TagPrefixCache tagPrefixes = new TagPrefixCache();
+
+	// Constructors
+
+	/**
+	 * Creates a new instance of nRFLoggerRoutingTree, writing on the logging thread.
+	 */
+	public nRFLoggerRoutingTree() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new instance of nRFLoggerRoutingTree.
+	 *
+	 * @param writer The writer used to write the entries on a background thread, or null
+	 *               to write them on the logging thread. The writer is not closed by the tree.
+	 */
+	public nRFLoggerRoutingTree(final @Nullable AsyncLogWriter writer) {
+		this.writer = writer;
+	}
+
+	// Thread key
+
+	/**
+	 * Sets the routing key for the current thread. Messages logged on this thread will be logged
+	 * to the session routed for the key with {@link #routeKey(String, ILogSession)}, regardless
+	 * of their tag. The key is shared by all routing trees.
+	 *
+	 * @param key The key, e.g. the device address, or null to clear it.
+	 */
+	public static void setThreadKey(final @Nullable String key) {
+		if (key != null)
+			threadKey.set(key);
+		else
+			threadKey.remove();
+	}
+
+	/**
+	 * Clears the routing key of the current thread.
+	 */
+	public static void clearThreadKey() {
+		threadKey.remove();
+	}
+
+	/**
+	 * Returns the routing key of the current thread.
+	 * @return The key, or null if not set.
+	 */
+	@Nullable
+	public static String getThreadKey() {
+		return threadKey.get();
+	}
+
+	// Public API
+
+	/**
+	 * Routes messages with the given tag to the session.
+	 *
+	 * @param tag The tag.
+	 * @param session The log session, or null to remove the route.
+	 */
+	public synchronized void route(final @NonNull String tag, final @Nullable ILogSession session) {
+		tagRoutes = with(tagRoutes, tag, session);
+	}
+
+	/**
+	 * Routes messages logged on threads with the given key to the session.
+	 *
+	 * @param key The key, as set with {@link #setThreadKey(String)}.
+	 * @param session The log session, or null to remove the route.
+	 */
+	public synchronized void routeKey(final @NonNull String key, final @Nullable ILogSession session) {
+		keyRoutes = with(keyRoutes, key, session);
+	}
+
+	/**
+	 * Removes the route of the given tag.
+	 *
+	 * @param tag The tag.
+	 */
+	public void unroute(final @NonNull String tag) {
+		route(tag, null);
+	}
+
+	/**
+	 * Removes the route of the given key.
+	 *
+	 * @param key The key.
+	 */
+	public void unrouteKey(final @NonNull String key) {
+		routeKey(key, null);
+	}
+
+	/**
+	 * Removes all routes. The default session is not changed.
+	 */
+	public synchronized void clearRoutes() {
+		tagRoutes = Collections.emptyMap();
+		keyRoutes = Collections.emptyMap();
+	}
+
+	/**
+	 * Sets the session used for messages which are not routed by key or tag.
+	 *
+	 * @param session The log session, or null to ignore such messages (default).
+	 */
+	public void setDefaultSession(final @Nullable ILogSession session) {
+		this.defaultSession = session;
+	}
+
+	/**
+	 * Returns the session used for messages which are not routed by key or tag.
+	 * @return The log session, or null if not set.
+	 */
+	@Nullable
+	public ILogSession getDefaultSession() {
+		return defaultSession;
+	}
+
+	/**
+	 * Returns the session to which a message with given tag, logged on the current thread,
+	 * would be logged.
+	 *
+	 * @param tag The tag.
+	 * @return The log session, or null if the message would not be logged.
+	 */
+	@Nullable
+	public ILogSession getSession(final @Nullable String tag) {
+		final Map<String, ILogSession> keyRoutes = this.keyRoutes;
+		if (!keyRoutes.isEmpty()) {
+			final String key = threadKey.get();
+			if (key != null) {
+				final ILogSession session = keyRoutes.get(key);
+				if (session != null)
+					return session;
+			}
+		}
+		if (tag != null) {
+			final ILogSession session = tagRoutes.get(tag);
+			if (session != null)
+				return session;
+		}
+		return defaultSession;
+	}
+
+	/**
+	 * Sets whether the non-null tags should be logged as:
+	 * <p>
+	 * <code>[&lt;tag&gt;] &lt;message&gt;</code>
+	 * </p>
+	 * @param enable true to enable (default), false to disable.
+	 */
+	public void setLoggingTagsEnabled(final boolean enable) {
+		this.logTags = enable;
+	}
+
+	/**
+	 * Sets the filter of log entries by tag and priority, applied to all sessions.
+	 *
+	 * @param filter the filter, using <code>android.util.Log</code> priorities, or null to log all entries.
+	 * @see nRFLoggerTree#setFilter(TagFilter)
+	 */
+	public void setFilter(final @Nullable TagFilter filter) {
+		this.filter = filter != null ? filter : TagFilter.ALL;
+	}
+
+	/**
+	 * Returns the filter of log entries, by default {@link TagFilter#ALL}.
+	 * @return The filter.
+	 */
+	@NonNull
+	public TagFilter getFilter() {
+		return filter;
+	}
+
+	// Tree API
+
+	@Override
+	protected boolean isLoggable(@Nullable final String tag, @LogPriority final int priority) {
+		return filter.isLoggable(tag, priority)
+				&& Logger.isLoggable(getSession(tag), LogContract.Log.Level.fromPriority(priority));
+	}
+
+	@Override
+	protected void log(@LogPriority final int priority, @Nullable final String tag,
+					   @NonNull final String message, @Nullable final Throwable t) {
+		final ILogSession session = getSession(tag);
+		if (session == null)
+			return;
+
+		final int level = LogContract.Log.Level.fromPriority(priority);
+
+		// Ignore t. Stack trace is already added to the message by prepareLog
+
+		final String entry = logTags ? tagPrefixes.withTag(tag, message) : message;
+		if (writer != null)
+			writer.write(session, level, entry);
+		else
+			Logger.log(session, level, entry);
+	}
+
+	// Helpers
+
+	@NonNull
+	private static Map<String, ILogSession> with(@NonNull final Map<String, ILogSession> routes,
+												 @NonNull final String name, @Nullable final ILogSession session) {
+		final Map<String, ILogSession> copy = new HashMap<>(routes);
+		if (session != null)
+			copy.put(name, session);
+		else
+			copy.remove(name);
+		return copy.isEmpty() ? Collections.<String, ILogSession>emptyMap() : Collections.unmodifiableMap(copy);
+	}
+}
@@ -40,6 +40,8 @@ import androidx.annotation.Nullable;
 import no.nordicsemi.android.log.ILogSession;
 import no.nordicsemi.android.log.LogContract;
 import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.core.TagFilter;
+import no.nordicsemi.android.log.core.TagPrefixCache;
 import no.nordicsemi.android.log.timber.annotation.LogPriority;
 import timber.log.Timber;
 
@@ -56,6 +58,11 @@ public class nRFLoggerTree extends Timber.Tree {
 
 	private boolean logTags = true;
 
+	@NonNull
+	private TagFilter filter = TagFilter.ALL;
+
+	private final TagPrefixCache tagPrefixes = new TagPrefixCache();
+
 	// Constructors
 
 	/**
@@ -155,11 +162,37 @@ public class nRFLoggerTree extends Timber.Tree {
 		this.logTags = enable;
 	}
 
+	/**
+	 * Sets the filter of log entries by tag and priority. It's checked in
+	 * {@link #isLoggable(String, int)}, so filtered out messages are not even formatted.
+	 * <pre>
+	 * tree.setFilter(new TagFilter.Builder()
+	 *         .setMinPriority(Log.INFO)
+	 *         .setMinPriority("BleManager", Log.VERBOSE)
+	 *         .deny("Chatty")
+	 *         .build());
+	 * </pre>
+	 * @param filter the filter, using <code>android.util.Log</code> priorities, or null to log all entries.
+	 */
+	public void setFilter(final @Nullable TagFilter filter) {
+		this.filter = filter != null ? filter : TagFilter.ALL;
+	}
+
+	/**
+	 * Returns the filter of log entries, by default {@link TagFilter#ALL}.
+	 * @return The filter.
+	 */
+	@NonNull
+	public TagFilter getFilter() {
+		return filter;
+	}
+
 	// Tree API
 
 	@Override
 	protected boolean isLoggable(@Nullable final String tag, @LogPriority final int priority) {
-		return session != null;
+		return session != null && filter.isLoggable(tag, priority)
+				&& Logger.isLoggable(session, LogContract.Log.Level.fromPriority(priority));
 	}
 
 	@Override
@@ -172,10 +205,13 @@ public class nRFLoggerTree extends Timber.Tree {
 
 		// Ignore t. Stack trace is already added to the message by prepareLog
 
-		if (!logTags || tag == null || tag.isEmpty()) {
-			Logger.log(session, level, message);
-		} else {
-			Logger.log(session, level, "[" + tag + "] " + message);
-		}
+		write(session, level, logTags ? tagPrefixes.withTag(tag, message) : message);
+	}
+
+	/**
+	 * Writes the entry to the session.
+	 */
+	/* package */ void write(@NonNull final ILogSession session, final int level, @NonNull final String message) {
+		Logger.log(session, level, message);
 	}
 }
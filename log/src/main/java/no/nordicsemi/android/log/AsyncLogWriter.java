@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log;
+
+import android.content.ContentValues;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import no.nordicsemi.android.log.annotation.LogLevel;
+import no.nordicsemi.android.log.metrics.LogMetrics;
+import no.nordicsemi.android.log.metrics.LogTrace;
+
+/**
+ * Writes log entries on a background thread, so that logging never blocks the caller
+ * on a provider call.
+ * <p>
+ * {@link #write(ILogSession, int, String)} only adds the entry to a bounded queue. The writer
+ * thread takes all queued entries at once and writes them with a single bulk insert per session,
+ * using {@link Logger#log(ILogSession, ContentValues[])}. While a bulk insert is in progress,
+ * new entries accumulate in the queue, so the batches grow with the load. Entries keep the time
+ * of the {@link #write(ILogSession, int, String)} call and their order within each session.
+ * <p>
+ * If the queue is full, new entries are dropped and counted in {@link LogMetrics}.
+ * <pre>
+ * AsyncLogWriter writer = new AsyncLogWriter();
+ * writer.write(session, LogContract.Log.Level.INFO, "Connecting...");
+ * ...
+ * writer.close(); // writes all queued entries and stops the thread
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public final class AsyncLogWriter implements Closeable {
+	private static final String TAG = "AsyncLogWriter";
+	private static final LogMetrics METRICS = LogMetrics.getInstance();
+
+	/** The default maximum number of queued entries. */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private final Object mLock = new Object();
+	/* guarded by mLock */ private ILogSession[] mSessions;
+	/* guarded by mLock */ private long[] mTimes;
+	/* guarded by mLock */ private int[] mLevels;
+	/* guarded by mLock */ private String[] mData;
+	/* guarded by mLock */ private int mSize;
+	/** Number of entries added to the queue. */
+	/* guarded by mLock */ private long mQueued;
+	/** Number of entries taken from the queue and written, or dropped by the provider. */
+	/* guarded by mLock */ private long mWritten;
+	/* guarded by mLock */ private boolean mClosed;
+	private final Thread mThread;
+
+	/**
+	 * Creates the writer with {@link #DEFAULT_CAPACITY} and starts its thread.
+	 */
+	public AsyncLogWriter() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates the writer and starts its thread.
+	 *
+	 * @param capacity the maximum number of queued entries.
+	 */
+	public AsyncLogWriter(final int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be greater than 0");
+		mSessions = new ILogSession[capacity];
+		mTimes = new long[capacity];
+		mLevels = new int[capacity];
+		mData = new String[capacity];
+		mThread = new Thread(this::run, TAG);
+		mThread.setDaemon(true);
+		mThread.start();
+	}
+
+	/**
+	 * Adds the log entry to the queue. The method does not block.
+	 *
+	 * @param session the session, may be null, then it does nothing.
+	 * @param level   the log level.
+	 * @param message the message.
+	 * @return True if the entry was queued, false if the queue is full or the writer is closed.
+	 */
+	public boolean write(final ILogSession session, @LogLevel final int level, @NonNull final String message) {
+		if (session == null)
+			return false;
+		final long time = System.currentTimeMillis();
+		synchronized (mLock) {
+			if (mClosed || mSize == mData.length) {
+				METRICS.onDropped(level);
+				return false;
+			}
+			mSessions[mSize] = session;
+			mTimes[mSize] = time;
+			mLevels[mSize] = level;
+			mData[mSize] = message;
+			if (mSize++ == 0)
+				mLock.notifyAll();
+			mQueued++;
+		}
+		METRICS.onQueueDepthChanged(1);
+		return true;
+	}
+
+	/**
+	 * Waits until all entries queued before the call have been written.
+	 *
+	 * @param timeoutMillis the maximum time to wait, in milliseconds.
+	 * @return True if the entries were written, false if the timeout elapsed.
+	 * @throws InterruptedException if the thread was interrupted while waiting.
+	 */
+	public boolean flush(final long timeoutMillis) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (mLock) {
+			final long target = mQueued;
+			while (mWritten < target) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					return false;
+				mLock.wait(remaining);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Stops accepting new entries, writes the queued ones and stops the thread.
+	 * The method blocks until the entries are written.
+	 */
+	@Override
+	public void close() {
+		synchronized (mLock) {
+			if (mClosed)
+				return;
+			mClosed = true;
+			mLock.notifyAll();
+		}
+		if (Thread.currentThread() == mThread)
+			return;
+		try {
+			mThread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+		final int capacity;
+		synchronized (mLock) {
+			capacity = mData.length;
+		}
+		// The queue is swapped with these arrays, so that entries are written outside the lock
+		ILogSession[] sessions = new ILogSession[capacity];
+		long[] times = new long[capacity];
+		int[] levels = new int[capacity];
+		String[] data = new String[capacity];
+		final Map<ILogSession, List<ContentValues>> batches = new LinkedHashMap<>();
+
+		while (true) {
+			final int count;
+			synchronized (mLock) {
+				while (mSize == 0 && !mClosed) {
+					try {
+						mLock.wait();
+					} catch (final InterruptedException e) {
+						// The writer is stopped with close()
+					}
+				}
+				if (mSize == 0)
+					return; // closed and all entries written
+				count = mSize;
+				final ILogSession[] queuedSessions = mSessions;
+				final long[] queuedTimes = mTimes;
+				final int[] queuedLevels = mLevels;
+				final String[] queuedData = mData;
+				mSessions = sessions;
+				mTimes = times;
+				mLevels = levels;
+				mData = data;
+				sessions = queuedSessions;
+				times = queuedTimes;
+				levels = queuedLevels;
+				data = queuedData;
+				mSize = 0;
+			}
+			METRICS.onQueueDepthChanged(-count);
+
+			LogTrace.begin("AsyncLogWriter.write");
+			try {
+				for (int i = 0; i < count; ++i) {
+					List<ContentValues> batch = batches.get(sessions[i]);
+					if (batch == null) {
+						batch = new ArrayList<>();
+						batches.put(sessions[i], batch);
+					}
+					final ContentValues values = new ContentValues();
+					values.put(LogContract.Log.TIME, times[i]);
+					values.put(LogContract.Log.LEVEL, levels[i]);
+					values.put(LogContract.Log.DATA, data[i]);
+					batch.add(values);
+					sessions[i] = null;
+					data[i] = null;
+				}
+				for (final Map.Entry<ILogSession, List<ContentValues>> entry : batches.entrySet()) {
+					Logger.log(entry.getKey(), entry.getValue());
+				}
+			} catch (final RuntimeException e) {
+				Log.w(TAG, "Writing log entries failed", e);
+			} finally {
+				batches.clear();
+				LogTrace.end();
+			}
+
+			synchronized (mLock) {
+				mWritten += count;
+				mLock.notifyAll();
+			}
+		}
+	}
+}
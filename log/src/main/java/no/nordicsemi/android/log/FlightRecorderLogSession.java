@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import no.nordicsemi.android.log.annotation.LogLevel;
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogEngine;
+import no.nordicsemi.android.log.metrics.LogMetrics;
+
+/**
+ * A log session keeping low level entries only in memory.
+ * <p>
+ * Entries with level lower than the write-through level (by default
+ * {@link LogContract.Log.Level#WARNING}) are kept in a ring buffer of the last N entries and
+ * are not persisted. When an entry with the write-through level or higher is logged, the
+ * buffered entries are written in order in front of it using a single bulk insert, giving
+ * the context before the warning or error at a fraction of the write volume.
+ * <p>
+ * Log using {@link Logger} as usual:
+ * <pre>
+ * ILogSession session = new FlightRecorderLogSession(Logger.newSession(context, "key", "name"));
+ * Logger.d(session, "Buffered in RAM");
+ * Logger.e(session, "Persisted together with the buffered entries");
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class FlightRecorderLogSession implements ILogSession {
+	/**
+	 * The default number of buffered entries.
+	 */
+	public static final int DEFAULT_CAPACITY = 200;
+
+	private final ILogSession session;
+	private final int writeThroughLevel;
+	private final LogEngine engine;
+
+	/**
+	 * Creates a flight recorder session buffering up to {@link #DEFAULT_CAPACITY} entries
+	 * with level lower than {@link LogContract.Log.Level#WARNING}.
+	 *
+	 * @param session the session the entries are written to.
+	 */
+	public FlightRecorderLogSession(@NonNull final ILogSession session) {
+		this(session, DEFAULT_CAPACITY, LogContract.Log.Level.WARNING);
+	}
+
+	/**
+	 * Creates a flight recorder session.
+	 *
+	 * @param session           the session the entries are written to.
+	 * @param capacity          the maximum number of buffered entries. Older entries are dropped.
+	 * @param writeThroughLevel the lowest level of entries written to the session.
+	 */
+	public FlightRecorderLogSession(@NonNull final ILogSession session, final int capacity,
+									@LogLevel final int writeThroughLevel) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be greater than 0");
+		this.session = session;
+		this.writeThroughLevel = writeThroughLevel;
+		this.engine = new LogEngine.Builder(new SessionLogSink(session))
+				.setBufferedBelow(writeThroughLevel, capacity)
+				.setListener(LogMetrics.getInstance()::onFiltered)
+				.build();
+	}
+
+	/**
+	 * Returns the session the entries are written to.
+	 */
+	@NonNull
+	public ILogSession getSession() {
+		return session;
+	}
+
+	/**
+	 * Returns the lowest level of entries written to the session immediately.
+	 */
+	public int getWriteThroughLevel() {
+		return writeThroughLevel;
+	}
+
+	/**
+	 * Sets the minimum level of logged entries. Entries with lower level are discarded,
+	 * neither buffered nor written. By default all entries are logged.
+	 *
+	 * @param level the minimum level, e.g. {@link LogContract.Log.Level#INFO}.
+	 */
+	public void setMinLevel(@LogLevel final int level) {
+		engine.setMinLevel(level);
+	}
+
+	/**
+	 * Returns the minimum level of logged entries.
+	 */
+	@LogLevel
+	public int getMinLevel() {
+		return engine.getMinLevel();
+	}
+
+	/**
+	 * Returns the engine buffering and writing the entries.
+	 */
+	@NonNull
+	/* package */LogEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Logs the entry. Entries below the write-through level are only buffered.
+	 *
+	 * @param time    the entry time.
+	 * @param level   the log level.
+	 * @param message the message.
+	 */
+	/* package */void log(final long time, final int level, @NonNull final String message) {
+		engine.log(time, level, message);
+	}
+
+	/**
+	 * Logs the entries. The buffered entries and entries below the write-through level are
+	 * written only if the array contains an entry with the write-through level or higher.
+	 *
+	 * @param values log entries obtained using {@link Logger#logEntry(ILogSession, int, String)}.
+	 */
+	/* package */void log(@NonNull final ContentValues[] values) {
+		final LogBatch batch = new LogBatch(values.length);
+		final long now = System.currentTimeMillis();
+		for (final ContentValues value : values) {
+			if (value == null)
+				continue;
+			final String message = value.getAsString(LogContract.Log.DATA);
+			if (message == null)
+				continue;
+			final Long time = value.getAsLong(LogContract.Log.TIME);
+			final Integer level = value.getAsInteger(LogContract.Log.LEVEL);
+			batch.add(time != null ? time : now, level != null ? level : LogContract.Log.Level.DEBUG, message);
+		}
+		engine.log(batch);
+	}
+
+	/**
+	 * Writes all buffered entries to the session, e.g. before the application crashes.
+	 */
+	public void flush() {
+		engine.flush();
+	}
+
+	/**
+	 * Discards all buffered entries.
+	 */
+	public void clear() {
+		engine.clear();
+	}
+
+	@NonNull
+	@Override
+	public Context getContext() {
+		return session.getContext();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionUri() {
+		return session.getSessionUri();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionEntriesUri() {
+		return session.getSessionEntriesUri();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionContentUri() {
+		return session.getSessionContentUri();
+	}
+}
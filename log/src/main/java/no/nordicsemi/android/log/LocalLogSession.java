@@ -39,7 +39,10 @@ import androidx.annotation.Nullable;
 
 import android.util.Log;
 
+import no.nordicsemi.android.log.annotation.LogLevel;
+import no.nordicsemi.android.log.core.LogEngine;
 import no.nordicsemi.android.log.localprovider.LocalLogContentProvider;
+import no.nordicsemi.android.log.metrics.LogMetrics;
 
 /**
  * If the nRF Logger application is not installed on the phone/tablet application may still use
@@ -51,6 +54,8 @@ import no.nordicsemi.android.log.localprovider.LocalLogContentProvider;
 public class LocalLogSession implements ILogSession {
 	private final Context context;
 	private final Uri sessionUri;
+	private final Uri fireAndForgetEntriesUri;
+	private final LogEngine engine;
 
 	/**
 	 * Creates new logger session. Must be created before appending log entries.
@@ -92,6 +97,46 @@ public class LocalLogSession implements ILogSession {
 	/* package */LocalLogSession(@NonNull final Context context, @NonNull final Uri sessionUri) {
 		this.context = context.getApplicationContext();
 		this.sessionUri = sessionUri;
+		this.fireAndForgetEntriesUri = LogContract.Log.createFireAndForgetUri(getSessionEntriesUri());
+		this.engine = new LogEngine.Builder(new SessionLogSink(this))
+				.setListener(LogMetrics.getInstance()::onFiltered)
+				.build();
+	}
+
+	/**
+	 * Returns the engine used by {@link Logger} to write single log entries to this session.
+	 */
+	@NonNull
+	/* package */LogEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Sets the minimum level of entries logged to this session with {@link Logger}, including
+	 * bulk inserts. Entries with lower level are discarded before they are sent to the provider.
+	 * By default all entries are logged.
+	 *
+	 * @param level the minimum level, e.g. {@link LogContract.Log.Level#INFO}.
+	 */
+	public void setMinLevel(@LogLevel final int level) {
+		engine.setMinLevel(level);
+	}
+
+	/**
+	 * Returns the minimum level of entries logged to this session.
+	 */
+	@LogLevel
+	public int getMinLevel() {
+		return engine.getMinLevel();
+	}
+
+	/**
+	 * Returns the Uri used by {@link Logger} to insert single log entries. The local provider
+	 * does not build the result Uri for them, as it's never used.
+	 */
+	@NonNull
+	/* package */Uri getFireAndForgetEntriesUri() {
+		return fireAndForgetEntriesUri;
 	}
 
 	/**
@@ -101,6 +101,32 @@ public class LogContract {
 		String MARK = "mark";
 	}
 
+	/**
+	 * Session summary columns, maintained by the
+	 * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider} together with each
+	 * inserted log entry. They are not supported by nRF Logger.
+	 */
+	protected interface SessionSummaryColumns {
+		/**
+		 * Number of log entries in the session.
+		 */
+		String ENTRY_COUNT = "entry_count";
+		/**
+		 * The highest level of a log entry in the session, or <code>null</code> if the session
+		 * is empty. See {@link LogContract.Log.Level} for options.
+		 */
+		String MAX_LEVEL = "max_level";
+		/**
+		 * The time of the newest log entry in the session, or <code>null</code> if the session
+		 * is empty.
+		 */
+		String LAST_ENTRY_TIME = "last_entry_time";
+		/**
+		 * Total size of the log entry data in the session, in bytes (UTF-8).
+		 */
+		String TOTAL_BYTES = "total_bytes";
+	}
+
 	protected interface ApplicationColumns {
 		/**
 		 * The name of the application that created the session.
@@ -158,6 +184,58 @@ public class LogContract {
 		 */
 		public static final String CONTENT_ITEM_TYPE = "vnd.android.cursor.item/no.nordicsemi.android.log.entry";
 
+		/**
+		 * The query parameter that may be added to the log entries Uri when inserting a log entry.
+		 * If set to <code>true</code>, the provider does not build the Uri of the new entry,
+		 * returning the given Uri instead, and notifies observers about the change with a delay,
+		 * once for all entries inserted in the meantime.
+		 * <p>
+		 * Supported only by the
+		 * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider}.
+		 */
+		public static final String PARAM_FIRE_AND_FORGET = "fire_and_forget";
+
+		/**
+		 * Returns the {@link Uri} to insert log entries in fire-and-forget mode.
+		 *
+		 * @param entriesUri the session entries Uri, see {@link ILogSession#getSessionEntriesUri()}.
+		 * @return The {@link Uri} with {@link #PARAM_FIRE_AND_FORGET} set.
+		 */
+		public static Uri createFireAndForgetUri(final Uri entriesUri) {
+			return entriesUri.buildUpon()
+					.appendQueryParameter(PARAM_FIRE_AND_FORGET, Boolean.TRUE.toString())
+					.build();
+		}
+
+		/**
+		 * The {@link android.content.ContentProvider#call(String, String, android.os.Bundle)}
+		 * method inserting a batch of log entries given as parallel arrays: {@link #EXTRA_TIMES},
+		 * {@link #EXTRA_LEVELS} and {@link #EXTRA_DATA}. The argument is the session entries Uri.
+		 * The returned Bundle contains the number of inserted entries as {@link #EXTRA_COUNT}.
+		 * <p>
+		 * Supported only by the
+		 * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider}.
+		 * Other providers return <code>null</code>.
+		 */
+		public static final String METHOD_BULK_INSERT = "bulk_insert";
+
+		/**
+		 * The <code>long[]</code> with entry times. If not set, the current time is used.
+		 */
+		public static final String EXTRA_TIMES = "times";
+		/**
+		 * The <code>int[]</code> with entry levels.
+		 */
+		public static final String EXTRA_LEVELS = "levels";
+		/**
+		 * The <code>String[]</code> with entry data.
+		 */
+		public static final String EXTRA_DATA = "data";
+		/**
+		 * The <code>int</code> with number of inserted entries.
+		 */
+		public static final String EXTRA_COUNT = "count";
+
 		/**
 		 * A helper class that contains predefined static level values:
 		 * <ul>
@@ -210,27 +288,12 @@ public class LogContract {
 			 * @return the {@link Level} matching given priority.
 			 */
 			public static int fromPriority(final int priority) {
-				switch (priority) {
-					case android.util.Log.VERBOSE:
-						return LogContract.Log.Level.VERBOSE;
-					case android.util.Log.DEBUG:
-						return LogContract.Log.Level.DEBUG;
-					case android.util.Log.INFO:
-						return LogContract.Log.Level.INFO;
-					case android.util.Log.WARN:
-						return LogContract.Log.Level.WARNING;
-					case android.util.Log.ERROR:
-					case android.util.Log.ASSERT:
-						return LogContract.Log.Level.ERROR;
-					default:
-						// In case the Level was used, for example APPLICATION.
-						return priority;
-				}
+				return no.nordicsemi.android.log.core.Level.fromPriority(priority);
 			}
 		}
 	}
 
-	public final static class Session implements BaseColumns, SessionColumns {
+	public final static class Session implements BaseColumns, SessionColumns, SessionSummaryColumns {
 		private Session() {
 			// empty
 		}
@@ -331,6 +394,105 @@ public class LogContract {
 			 */
 			public static final String CONTENT = "content";
 		}
+
+		/**
+		 * Per-level statistics of a single session. The cursor returned for
+		 * {@code /session/[ID]/stats} contains one row for each log level present in the session,
+		 * sorted by level.
+		 * <p>
+		 * Supported only by the
+		 * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider}.
+		 */
+		public final static class Stats {
+			private Stats() {
+				// empty
+			}
+
+			/**
+			 * The directory twig for session statistics. Must be appended to the session Uri.
+			 */
+			public static final String CONTENT_DIRECTORY = "stats";
+
+			/**
+			 * The log level. See {@link Log.Level} for options.
+			 */
+			public static final String LEVEL = Log.LEVEL;
+			/**
+			 * Number of log entries with the level.
+			 */
+			public static final String COUNT = BaseColumns._COUNT;
+			/**
+			 * The time of the first log entry with the level.
+			 */
+			public static final String FIRST_TIME = "first_time";
+			/**
+			 * The time of the last log entry with the level.
+			 */
+			public static final String LAST_TIME = "last_time";
+
+			/**
+			 * Returns the {@link Uri} to statistics of the session with given Uri.
+			 *
+			 * @param sessionUri the session Uri, see {@link ILogSession#getSessionUri()}.
+			 * @return The {@link Uri} that can be used to read session statistics.
+			 */
+			public static Uri createUri(final Uri sessionUri) {
+				return sessionUri.buildUpon().appendEncodedPath(CONTENT_DIRECTORY).build();
+			}
+		}
+
+		/**
+		 * Time histogram of a single session. The cursor returned for
+		 * {@code /session/[ID]/histogram?bucket=[MILLIS]} contains one row for each non-empty
+		 * time bucket, sorted by time.
+		 * <p>
+		 * Supported only by the
+		 * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider}.
+		 */
+		public final static class Histogram {
+			private Histogram() {
+				// empty
+			}
+
+			/**
+			 * The directory twig for session histogram. Must be appended to the session Uri.
+			 */
+			public static final String CONTENT_DIRECTORY = "histogram";
+
+			/**
+			 * The query parameter with the bucket width in milliseconds.
+			 * Default value is {@link #DEFAULT_BUCKET}.
+			 */
+			public static final String PARAM_BUCKET = "bucket";
+
+			/**
+			 * The default bucket width in milliseconds.
+			 */
+			public static final long DEFAULT_BUCKET = 1000;
+
+			/**
+			 * The time the bucket starts at, in milliseconds.
+			 */
+			public static final String BUCKET_START = "bucket_start";
+			/**
+			 * Number of log entries in the bucket.
+			 */
+			public static final String COUNT = BaseColumns._COUNT;
+
+			/**
+			 * Returns the {@link Uri} to the time histogram of the session with given Uri.
+			 *
+			 * @param sessionUri the session Uri, see {@link ILogSession#getSessionUri()}.
+			 * @param bucket     the bucket width in milliseconds.
+			 * @return The {@link Uri} that can be used to read session histogram.
+			 */
+			public static Uri createUri(final Uri sessionUri, final long bucket) {
+				return sessionUri.buildUpon()
+						.appendEncodedPath(CONTENT_DIRECTORY)
+						.appendQueryParameter(PARAM_BUCKET, String.valueOf(bucket))
+						.build();
+			}
+		}
 	}
 
 	public final static class Application implements BaseColumns, ApplicationColumns {
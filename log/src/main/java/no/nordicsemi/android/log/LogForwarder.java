@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import no.nordicsemi.android.log.core.BatchSplitter;
+import no.nordicsemi.android.log.localprovider.LocalLogContentProvider;
+
+/**
+ * The log forwarder keeps the logging local and fast, while the logs are still available in
+ * the nRF Logger application.
+ * <p>
+ * Sessions created with {@link #newSession(String, String)} are {@link LocalLogSession}s, so
+ * each log entry is written to the application's own {@link LocalLogContentProvider}, without
+ * any IPC to another application. A background thread forwards the entries to a session
+ * in nRF Logger when the local session has been idle for {@link #IDLE_DELAY} milliseconds, or
+ * when it has been finished with {@link #finish(ILogSession)}. Entries are sent in large
+ * bulk inserts and keep their original time (nRF Logger 1.5 or older overwrites it).
+ * <p>
+ * If the nRF Logger application is not installed, or fails to store the entries, they stay in
+ * the local provider and are sent again later.
+ * The forwarding state is kept in memory, so only sessions created or opened by this instance
+ * are forwarded.
+ * <pre>
+ * LogForwarder forwarder = new LogForwarder(context, MyLogContentProvider.AUTHORITY_URI, null);
+ * ILogSession session = forwarder.newSession("key", "name");
+ * Logger.i(session, "Connecting...");
+ * ...
+ * forwarder.finish(session);
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public final class LogForwarder implements Closeable {
+	private static final String TAG = "LogForwarder";
+
+	/**
+	 * Time after the last change in the local provider after which sessions are forwarded,
+	 * in milliseconds.
+	 */
+	public static final long IDLE_DELAY = 2000;
+
+	/**
+	 * Maximum number of entries sent in a single bulk insert.
+	 */
+	private static final int MAX_ENTRIES_PER_BATCH = 1000;
+
+	private static final String[] ENTRIES_PROJECTION = new String[]{
+			LogContract.Log._ID, LogContract.Log.TIME, LogContract.Log.LEVEL, LogContract.Log.DATA
+	};
+	private static final String[] SESSION_PROJECTION = new String[]{
+			LogContract.Session.KEY, LogContract.Session.NAME
+	};
+	private static final String ENTRIES_SELECTION = LogContract.Log._ID + ">?";
+	private static final String ENTRIES_SORT_ORDER = LogContract.Log._ID + " ASC";
+
+	private static final class ForwardedSession {
+		private final LocalLogSession local;
+		private LogSession remote;
+		private long lastForwardedId;
+		private boolean finished;
+
+		private ForwardedSession(@NonNull final LocalLogSession local) {
+			this.local = local;
+		}
+	}
+
+	private final Context mContext;
+	private final Uri mAuthorityUri;
+	private final String mProfile;
+	private final HandlerThread mThread;
+	private final Handler mHandler;
+	private final ContentObserver mObserver;
+	/** Sessions being forwarded, accessed only from the forwarder thread. */
+	private final Map<Uri, ForwardedSession> mSessions = new LinkedHashMap<>();
+	private final Runnable mForwardAll = this::forwardAll;
+	private volatile boolean mDeleteForwardedSessions;
+	private volatile boolean mClosed;
+
+	/**
+	 * Creates the log forwarder.
+	 *
+	 * @param context      the context.
+	 * @param authorityUri the authority Uri of the application's {@link LocalLogContentProvider}.
+	 * @param profile      optional application profile, see
+	 *                     {@link Logger#newSession(Context, String, String, String)}.
+	 */
+	public LogForwarder(@NonNull final Context context, @NonNull final Uri authorityUri,
+						@Nullable final String profile) {
+		mContext = context.getApplicationContext();
+		mAuthorityUri = authorityUri;
+		mProfile = profile;
+		mThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+		mThread.start();
+		mHandler = new Handler(mThread.getLooper());
+		mObserver = new ContentObserver(mHandler) {
+			@Override
+			public void onChange(final boolean selfChange) {
+				// Wait until the sessions are idle.
+				mHandler.removeCallbacks(mForwardAll);
+				mHandler.postDelayed(mForwardAll, IDLE_DELAY);
+			}
+		};
+		mContext.getContentResolver().registerContentObserver(authorityUri, true, mObserver);
+	}
+
+	/**
+	 * Sets whether the local sessions should be deleted after they have been finished and
+	 * all their entries forwarded. By default the local sessions are kept.
+	 *
+	 * @param delete true to delete forwarded sessions from the local provider.
+	 */
+	public void setDeleteForwardedSessions(final boolean delete) {
+		mDeleteForwardedSessions = delete;
+	}
+
+	/**
+	 * Creates a new local session which will be forwarded to nRF Logger.
+	 *
+	 * @param key  the session key, which is used to group sessions.
+	 * @param name the human readable session name.
+	 * @return The local session, or null if it could not be created.
+	 */
+	@Nullable
+	public ILogSession newSession(@NonNull final String key, @Nullable final String name) {
+		final LocalLogSession session = LocalLogSession.newSession(mContext, mAuthorityUri, key, name);
+		if (session != null)
+			forward(session);
+		return session;
+	}
+
+	/**
+	 * Starts forwarding the given local session to nRF Logger.
+	 *
+	 * @param session the session created in the provider given in the constructor.
+	 */
+	public void forward(@NonNull final LocalLogSession session) {
+		mHandler.post(() -> {
+			if (!mSessions.containsKey(session.getSessionUri()))
+				mSessions.put(session.getSessionUri(), new ForwardedSession(session));
+		});
+	}
+
+	/**
+	 * Marks the session as finished. The remaining entries are forwarded immediately and the
+	 * session is no longer tracked. Log entries added later to the session will not be forwarded.
+	 *
+	 * @param session the session returned by {@link #newSession(String, String)}.
+	 */
+	public void finish(@Nullable final ILogSession session) {
+		if (session == null)
+			return;
+		mHandler.post(() -> {
+			final ForwardedSession forwarded = mSessions.get(session.getSessionUri());
+			if (forwarded != null) {
+				forwarded.finished = true;
+				forwardAll();
+			}
+		});
+	}
+
+	/**
+	 * Forwards all pending entries without waiting for the sessions to be idle.
+	 */
+	public void flush() {
+		mHandler.post(mForwardAll);
+	}
+
+	/**
+	 * Forwards the pending entries and stops the forwarder thread.
+	 */
+	@Override
+	public void close() {
+		if (mClosed)
+			return;
+		mClosed = true;
+		mContext.getContentResolver().unregisterContentObserver(mObserver);
+		mHandler.removeCallbacks(mForwardAll);
+		mHandler.post(() -> {
+			forwardAll();
+			mThread.quit();
+		});
+	}
+
+	private void forwardAll() {
+		mHandler.removeCallbacks(mForwardAll);
+		final Iterator<ForwardedSession> iterator = mSessions.values().iterator();
+		while (iterator.hasNext()) {
+			final ForwardedSession session = iterator.next();
+			final boolean complete = forwardEntries(session);
+			if (session.finished && complete) {
+				iterator.remove();
+				if (mDeleteForwardedSessions)
+					session.local.delete();
+			}
+		}
+	}
+
+	/**
+	 * Forwards the new entries of the session to nRF Logger.
+	 *
+	 * @return True if all entries were forwarded, false if nRF Logger is not available or
+	 * did not store all entries. Entries which were not stored are sent again next time.
+	 */
+	private boolean forwardEntries(@NonNull final ForwardedSession session) {
+		if (session.remote == null) {
+			session.remote = createRemoteSession(session.local);
+			if (session.remote == null)
+				return false;
+		}
+
+		final ContentResolver resolver = mContext.getContentResolver();
+		final Cursor cursor;
+		try {
+			cursor = resolver.query(session.local.getSessionEntriesUri(), ENTRIES_PROJECTION,
+					ENTRIES_SELECTION, new String[]{String.valueOf(session.lastForwardedId)},
+					ENTRIES_SORT_ORDER);
+		} catch (final Exception e) {
+			Log.e(TAG, "Error while reading local log entries", e);
+			return false;
+		}
+		if (cursor == null)
+			return false;
+
+		final ContentValues[] batch = new ContentValues[MAX_ENTRIES_PER_BATCH];
+		final long[] ids = new long[MAX_ENTRIES_PER_BATCH];
+		int count = 0;
+		try {
+			while (cursor.moveToNext()) {
+				final ContentValues values = new ContentValues();
+				values.put(LogContract.Log.TIME, cursor.getLong(1));
+				values.put(LogContract.Log.LEVEL, cursor.getInt(2));
+				values.put(LogContract.Log.DATA, cursor.getString(3));
+				ids[count] = cursor.getLong(0);
+				batch[count++] = values;
+
+				if (count == MAX_ENTRIES_PER_BATCH || cursor.isLast()) {
+					if (!forwardBatch(session, batch, ids, count))
+						return false;
+					count = 0;
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts the entries to the nRF Logger session in bulk inserts small enough for a binder
+	 * transaction. The last forwarded id is updated after each insert that stored all its entries.
+	 *
+	 * @return True if all entries were stored.
+	 */
+	private boolean forwardBatch(@NonNull final ForwardedSession session,
+								 @NonNull final ContentValues[] batch, @NonNull final long[] ids,
+								 final int count) {
+		final ContentResolver resolver = mContext.getContentResolver();
+		final Uri entriesUri = session.remote.getSessionEntriesUri();
+		final BatchSplitter.SizeFunction sizes =
+				i -> BatchSplitter.estimateSize(batch[i].getAsString(LogContract.Log.DATA));
+		int start = 0;
+		while (start < count) {
+			final int end = BatchSplitter.chunkEnd(start, count, BatchSplitter.DEFAULT_MAX_CHUNK_SIZE, sizes);
+			final ContentValues[] chunk = start == 0 && end == batch.length ?
+					batch : Arrays.copyOfRange(batch, start, end);
+			final int inserted;
+			try {
+				inserted = resolver.bulkInsert(entriesUri, chunk);
+			} catch (final Exception e) {
+				Log.e(TAG, "Error while forwarding log entries", e);
+				return false;
+			}
+			if (inserted != chunk.length) {
+				Log.w(TAG, "nRF Logger stored " + inserted + " of " + chunk.length + " entries");
+				return false;
+			}
+			session.lastForwardedId = ids[end - 1];
+			start = end;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the nRF Logger session with the same key and name as the local one.
+	 *
+	 * @return The session, or null if nRF Logger is not installed.
+	 */
+	@Nullable
+	private LogSession createRemoteSession(@NonNull final LocalLogSession local) {
+		String key = null;
+		String name = null;
+		try {
+			final Cursor cursor = mContext.getContentResolver()
+					.query(local.getSessionUri(), SESSION_PROJECTION, null, null, null);
+			if (cursor != null) {
+				try {
+					if (cursor.moveToNext()) {
+						key = cursor.getString(0);
+						name = cursor.getString(1);
+					}
+				} finally {
+					cursor.close();
+				}
+			}
+		} catch (final Exception e) {
+			Log.e(TAG, "Error while reading local log session", e);
+		}
+		if (key == null)
+			return null;
+		return Logger.newSession(mContext, mProfile, key, name);
+	}
+}
@@ -37,6 +37,10 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import no.nordicsemi.android.log.annotation.LogLevel;
+import no.nordicsemi.android.log.core.LogEngine;
+import no.nordicsemi.android.log.metrics.LogMetrics;
+
 /**
  * The log session. This object can be created with the use of
  * {@link Logger#newSession(Context, String, String)} and is used to append new log entries to
@@ -46,10 +50,41 @@ import androidx.annotation.Nullable;
 public class LogSession implements ILogSession {
 	private final Context context;
 	private final Uri sessionUri;
+	private final LogEngine engine;
 
 	/* package */LogSession(final Context context, final Uri sessionUri) {
 		this.context = context.getApplicationContext();
 		this.sessionUri = sessionUri;
+		this.engine = new LogEngine.Builder(new SessionLogSink(this))
+				.setListener(LogMetrics.getInstance()::onFiltered)
+				.build();
+	}
+
+	/**
+	 * Returns the engine used by {@link Logger} to write single log entries to this session.
+	 */
+	@NonNull
+	/* package */LogEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Sets the minimum level of entries logged to this session with {@link Logger}, including
+	 * bulk inserts. Entries with lower level are discarded before they are sent to the provider.
+	 * By default all entries are logged.
+	 *
+	 * @param level the minimum level, e.g. {@link LogContract.Log.Level#INFO}.
+	 */
+	public void setMinLevel(@LogLevel final int level) {
+		engine.setMinLevel(level);
+	}
+
+	/**
+	 * Returns the minimum level of entries logged to this session.
+	 */
+	@LogLevel
+	public int getMinLevel() {
+		return engine.getMinLevel();
 	}
 
 	@NonNull
@@ -36,16 +36,25 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.UriMatcher;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import no.nordicsemi.android.log.annotation.LogLevel;
 import no.nordicsemi.android.log.annotation.LogMark;
+import no.nordicsemi.android.log.core.BatchSplitter;
+import no.nordicsemi.android.log.core.LogEngine;
+import no.nordicsemi.android.log.localprovider.SharedMemoryLogSession;
+import no.nordicsemi.android.log.metrics.LogMetrics;
+import no.nordicsemi.android.log.metrics.LogTrace;
+import no.nordicsemi.android.log.metrics.SlowCallDetector;
 
 /**
  * <p>
@@ -145,6 +154,8 @@ public class Logger {
 
 	private static final UriMatcher mUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 	private static final ContentValues values = new ContentValues();
+	private static final LogMetrics METRICS = LogMetrics.getInstance();
+	private static volatile SlowCallDetector slowCallDetector;
 
 	static {
 		final UriMatcher matcher = mUriMatcher;
@@ -154,6 +165,17 @@ public class Logger {
 		matcher.addURI(LogContract.AUTHORITY, "session/key/*/#/log", SESSION_KEY_NUMBER_LOG);
 	}
 
+	/**
+	 * Sets the detector of slow provider calls. Each insert, bulk insert and apply batch call
+	 * made by the Logger taking longer than the detector's threshold will be reported to its
+	 * listener, with the caller stack. By default no detector is set and calls are not checked.
+	 *
+	 * @param detector the detector, or null to disable detection.
+	 */
+	public static void setSlowCallDetector(@Nullable final SlowCallDetector detector) {
+		slowCallDetector = detector;
+	}
+
 	/**
 	 * Creates new logger session. Must be created before appending log entries. If the nRF Logger
 	 * application is not installed the method will return <code>null</code>.
@@ -186,34 +208,41 @@ public class Logger {
 										@Nullable final String profile,
 										@NonNull final String key,
 										@Nullable final String name) {
-		final ArrayList<ContentProviderOperation> ops = new ArrayList<>();
-		ContentProviderOperation.Builder builder =
-				ContentProviderOperation.newInsert(LogContract.Application.CONTENT_URI);
-		final String appName = context.getApplicationInfo()
-				.loadLabel(context.getPackageManager()).toString();
-		if (profile != null)
-			builder.withValue(LogContract.Application.APPLICATION, appName + " " + profile);
-		else
-			builder.withValue(LogContract.Application.APPLICATION, appName);
-		ops.add(builder.build());
-
-		final Uri uri = LogContract.Session.CONTENT_URI.buildUpon()
-				.appendEncodedPath(LogContract.Session.KEY_CONTENT_DIRECTORY)
-				.appendEncodedPath(key)
-				.build();
-		builder = ContentProviderOperation.newInsert(uri)
-				.withValueBackReference(LogContract.Session.APPLICATION_ID, 0)
-				.withValue(LogContract.Session.NAME, name);
-		ops.add(builder.build());
-
+		LogTrace.begin("Logger.newSession");
 		try {
-			final ContentProviderResult[] results = context.getContentResolver()
-					.applyBatch(LogContract.AUTHORITY, ops);
-			final Uri sessionUri = results[1].uri;
-			return new LogSession(context, sessionUri);
-		} catch (final Exception e) {
-			// the nRF Logger application is not installed, do nothing
-			return null;
+			final ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+			ContentProviderOperation.Builder builder =
+					ContentProviderOperation.newInsert(LogContract.Application.CONTENT_URI);
+			final String appName = context.getApplicationInfo()
+					.loadLabel(context.getPackageManager()).toString();
+			if (profile != null)
+				builder.withValue(LogContract.Application.APPLICATION, appName + " " + profile);
+			else
+				builder.withValue(LogContract.Application.APPLICATION, appName);
+			ops.add(builder.build());
+
+			final Uri uri = LogContract.Session.CONTENT_URI.buildUpon()
+					.appendEncodedPath(LogContract.Session.KEY_CONTENT_DIRECTORY)
+					.appendEncodedPath(key)
+					.build();
+			builder = ContentProviderOperation.newInsert(uri)
+					.withValueBackReference(LogContract.Session.APPLICATION_ID, 0)
+					.withValue(LogContract.Session.NAME, name);
+			ops.add(builder.build());
+
+			try {
+				final long start = startCall();
+				final ContentProviderResult[] results = context.getContentResolver()
+						.applyBatch(LogContract.AUTHORITY, ops);
+				endCall(LogMetrics.OP_APPLY_BATCH, start, null, key, ops.size());
+				final Uri sessionUri = results[1].uri;
+				return new LogSession(context, sessionUri);
+			} catch (final Exception e) {
+				// the nRF Logger application is not installed, do nothing
+				return null;
+			}
+		} finally {
+			LogTrace.end();
 		}
 	}
 
@@ -390,18 +419,88 @@ public class Logger {
 	 */
 	public static void log(@Nullable final ILogSession session,
 						   @LogLevel final int level, @NonNull final String message) {
+		LogTrace.begin("Logger.log");
+		try {
+			if (session == null)
+				return;
+			final long time = System.currentTimeMillis();
+			if (session instanceof FlightRecorderLogSession) {
+				((FlightRecorderLogSession) session).log(time, level, message);
+				return;
+			}
+			// Sessions created by the library filter and write through their LogEngine,
+			// which calls write().
+			final LogEngine engine = getEngine(session);
+			if (engine != null) {
+				engine.log(time, level, message);
+			} else {
+				write(session, time, level, message);
+			}
+		} finally {
+			LogTrace.end();
+		}
+	}
+
+	/**
+	 * Returns whether entries with given level are logged to the session, or discarded because
+	 * of the minimum level set with {@link LogSession#setMinLevel(int)},
+	 * {@link LocalLogSession#setMinLevel(int)} or {@link FlightRecorderLogSession#setMinLevel(int)}.
+	 * Use it to avoid building messages which would be discarded.
+	 *
+	 * @param session the session.
+	 * @param level   the log level.
+	 * @return True, if the entry would be logged, false if discarded or the session is null.
+	 */
+	public static boolean isLoggable(@Nullable final ILogSession session, @LogLevel final int level) {
 		if (session == null)
-			return;
+			return false;
+		final LogEngine engine = getEngine(session);
+		return engine == null || engine.isLoggable(level);
+	}
 
-		synchronized (values) {
-			values.clear();
-			values.put(LogContract.Log.LEVEL, level);
-			values.put(LogContract.Log.DATA, message);
-			try {
-				session.getContext().getContentResolver().insert(session.getSessionEntriesUri(), values);
-			} catch (final Exception e) {
-				// nRF Logger application is not installed, do nothing
+	/**
+	 * Returns the engine filtering and writing entries to sessions created by the library,
+	 * or null for other sessions.
+	 */
+	@Nullable
+	private static LogEngine getEngine(@NonNull final ILogSession session) {
+		if (session instanceof LogSession)
+			return ((LogSession) session).getEngine();
+		if (session instanceof LocalLogSession)
+			return ((LocalLogSession) session).getEngine();
+		if (session instanceof FlightRecorderLogSession)
+			return ((FlightRecorderLogSession) session).getEngine();
+		return null;
+	}
+
+	/**
+	 * Writes the log entry to the session, using the shared memory transport if available,
+	 * or a single insert otherwise. This is the sink of the session {@link LogEngine}.
+	 */
+	/* package */ static void write(@NonNull final ILogSession session, final long time,
+									@LogLevel final int level, @NonNull final String message) {
+		LogTrace.begin("Logger.write");
+		try {
+			if (writeShared(session, time, level, message))
+				return;
+
+			synchronized (values) {
+				values.clear();
+				values.put(LogContract.Log.TIME, time);
+				values.put(LogContract.Log.LEVEL, level);
+				values.put(LogContract.Log.DATA, message);
+				try {
+					final long start = startCall();
+					session.getContext().getContentResolver().insert(getEntriesUri(session), values);
+					endCall(LogMetrics.OP_INSERT, start, session, null, 1);
+					METRICS.onAccepted(level, message.length());
+				} catch (final Exception e) {
+					// nRF Logger application is not installed, do nothing
+					METRICS.onDropped(level);
+				}
 			}
+		} finally {
+			LogTrace.end();
 		}
 	}
 
@@ -520,17 +619,10 @@ public class Logger {
 	public static void log(@Nullable final ILogSession session,
 						   @LogLevel final int level,
 						   @StringRes final int messageResId, final Object... params) {
-		if (session == null)
+		if (!isLoggable(session, level))
 			return;
 
-		values.clear();
-		values.put(LogContract.Log.LEVEL, level);
-		values.put(LogContract.Log.DATA, session.getContext().getString(messageResId, params));
-		try {
-			session.getContext().getContentResolver().insert(session.getSessionEntriesUri(), values);
-		} catch (final Exception e) {
-			// the nRF Logger application is not installed, do nothing
-		}
+		log(session, level, session.getContext().getString(messageResId, params));
 	}
 
 	/**
@@ -557,10 +649,65 @@ public class Logger {
 		return values;
 	}
 
+	/**
+	 * Returns the Uri to insert a single log entry to. Entries inserted to the local provider
+	 * use fire-and-forget mode, as the returned Uri is never used.
+	 */
+	@NonNull
+	private static Uri getEntriesUri(@NonNull final ILogSession session) {
+		if (session instanceof LocalLogSession)
+			return ((LocalLogSession) session).getFireAndForgetEntriesUri();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1 && session instanceof SharedMemoryLogSession)
+			return ((SharedMemoryLogSession) session).getLocalSession().getFireAndForgetEntriesUri();
+		return session.getSessionEntriesUri();
+	}
+
+	/**
+	 * Returns whether the session is stored in the local provider of this application.
+	 */
+	private static boolean isLocal(@NonNull final ILogSession session) {
+		return session instanceof LocalLogSession
+				|| (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1 && session instanceof SharedMemoryLogSession);
+	}
+
+	/**
+	 * Writes the log entry to the shared memory, if the session is a {@link SharedMemoryLogSession}.
+	 *
+	 * @return True, if the entry was written.
+	 */
+	private static boolean writeShared(@NonNull final ILogSession session,
+									   final long time, final int level, @NonNull final String message) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1
+				&& session instanceof SharedMemoryLogSession
+				&& ((SharedMemoryLogSession) session).write(time, level, message)) {
+			METRICS.onAccepted(level, message.length());
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean writeShared(@NonNull final ILogSession session,
+									   @Nullable final ContentValues value) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O_MR1 || !(session instanceof SharedMemoryLogSession))
+			return false;
+		if (value == null)
+			return true; // null entries are skipped anyway
+		final String data = value.getAsString(LogContract.Log.DATA);
+		if (data == null)
+			return true;
+		final Long time = value.getAsLong(LogContract.Log.TIME);
+		final Integer level = value.getAsInteger(LogContract.Log.LEVEL);
+		return writeShared(session, time != null ? time : System.currentTimeMillis(),
+				level != null ? level : LogContract.Log.Level.DEBUG, data);
+	}
+
 	/**
 	 * Inserts an array of log entries in a bulk insert operation.
 	 * The entry timestamp will be overwritten by the bulk operation time if used with
 	 * nRF Logger 1.5 or older.
+	 * <p>
+	 * Large arrays are split into chunks small enough to fit in a binder transaction,
+	 * which are inserted one after another.
 	 *
 	 * @param session the session created using {@link #newSession(Context, String, String)}.
 	 * @param values  an array of values obtained using {@link #logEntry(ILogSession, int, String)}
@@ -568,14 +715,28 @@ public class Logger {
 	 */
 	public static void log(@Nullable final ILogSession session,
 						   @Nullable final ContentValues[] values) {
-		if (session == null || values == null || values.length == 0)
-			return;
-
+		LogTrace.begin("Logger.bulkLog");
 		try {
-			session.getContext().getContentResolver()
-					.bulkInsert(session.getSessionEntriesUri(), values);
-		} catch (final Exception e) {
-			// the nRF Logger application is not installed, do nothing
+			if (session == null || values == null || values.length == 0)
+				return;
+			if (session instanceof FlightRecorderLogSession) {
+				((FlightRecorderLogSession) session).log(values);
+				return;
+			}
+			final LogEngine engine = getEngine(session);
+			final ContentValues[] entries = engine != null ? filter(engine, values) : values;
+
+			// Binder transactions are limited, so big batches are sent in chunks.
+			final BatchSplitter.SizeFunction sizes = i -> estimateSize(entries[i]);
+			int start = 0;
+			while (start < entries.length) {
+				final int end = BatchSplitter.chunkEnd(start, entries.length,
+						BatchSplitter.DEFAULT_MAX_CHUNK_SIZE, sizes);
+				bulkInsert(session, entries, start, end);
+				start = end;
+			}
+		} finally {
+			LogTrace.end();
 		}
 	}
 
@@ -593,11 +754,167 @@ public class Logger {
 		if (session == null || values == null || values.isEmpty())
 			return;
 
+		log(session, values.toArray(new ContentValues[0]));
+	}
+
+	/**
+	 * Returns the entries not discarded by the minimum level of the engine. Entries without
+	 * a level are logged as {@link LogContract.Log.Level#DEBUG}.
+	 *
+	 * @return The given array if no entry was discarded, a new array otherwise.
+	 */
+	@NonNull
+	private static ContentValues[] filter(@NonNull final LogEngine engine,
+										  @NonNull final ContentValues[] values) {
+		if (engine.isLoggable(LogContract.Log.Level.DEBUG))
+			return values;
+		final ArrayList<ContentValues> entries = new ArrayList<>(values.length);
+		for (final ContentValues value : values) {
+			if (value == null)
+				continue;
+			final Integer level = value.getAsInteger(LogContract.Log.LEVEL);
+			final int l = level != null ? level : LogContract.Log.Level.DEBUG;
+			if (engine.isLoggable(l)) {
+				entries.add(value);
+			} else {
+				METRICS.onFiltered(l);
+			}
+		}
+		return entries.size() == values.length ? values : entries.toArray(new ContentValues[0]);
+	}
+
+	/**
+	 * Returns the estimated size of the log entry when written to a {@link android.os.Parcel}.
+	 * Strings are written in UTF-16, and each value is preceded by its key and type.
+	 */
+	private static int estimateSize(@Nullable final ContentValues value) {
+		if (value == null)
+			return 0;
+		return BatchSplitter.estimateSize(value.getAsString(LogContract.Log.DATA));
+	}
+
+	/**
+	 * Inserts the log entries from the given range in a single binder transaction.
+	 * A failure does not affect other chunks of the same batch.
+	 *
+	 * @param session the session.
+	 * @param values  the log entries.
+	 * @param start   the index of the first entry to insert.
+	 * @param end     the index after the last entry to insert.
+	 */
+	private static void bulkInsert(@NonNull final ILogSession session,
+								   @NonNull final ContentValues[] values,
+								   final int start, final int end) {
+		int first = start;
 		try {
-			session.getContext().getContentResolver()
-					.bulkInsert(session.getSessionEntriesUri(), values.toArray(new ContentValues[0]));
+			while (first < end && writeShared(session, values[first]))
+				first++;
+			if (first == end)
+				return;
+			final long callStart = startCall();
+			// The local provider accepts entries as arrays, which are much cheaper to send.
+			if (!isLocal(session) || !bulkInsertColumns(session, values, first, end)) {
+				final ContentValues[] chunk = first == 0 && end == values.length ?
+						values : Arrays.copyOfRange(values, first, end);
+				session.getContext().getContentResolver()
+						.bulkInsert(session.getSessionEntriesUri(), chunk);
+			}
+			endCall(LogMetrics.OP_BULK_INSERT, callStart, session, null, end - first);
+			countEntries(values, first, end, true);
 		} catch (final Exception e) {
 			// the nRF Logger application is not installed, do nothing
+			countEntries(values, first, end, false);
 		}
 	}
+
+	/**
+	 * Returns the start time of a provider call, or 0 if neither metrics nor the slow call
+	 * detector are enabled.
+	 */
+	private static long startCall() {
+		return METRICS.isEnabled() || slowCallDetector != null ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the provider call in {@link LogMetrics} and reports it if it was slow.
+	 *
+	 * @param operation  the operation.
+	 * @param start      the value returned by {@link #startCall()}.
+	 * @param session    the session, or null if the call created one.
+	 * @param sessionKey the session key, if known.
+	 * @param batchSize  number of entries or operations sent.
+	 */
+	private static void endCall(@LogMetrics.Operation final int operation, final long start,
+								@Nullable final ILogSession session, @Nullable final String sessionKey,
+								final int batchSize) {
+		if (start == 0)
+			return;
+		final long duration = System.nanoTime() - start;
+		METRICS.onLoggerCall(operation, duration);
+		final SlowCallDetector detector = slowCallDetector;
+		if (detector != null)
+			detector.onCall(operation, duration, session, sessionKey, batchSize);
+	}
+
+	/**
+	 * Records the entries from the given range in {@link LogMetrics} as accepted or dropped.
+	 */
+	private static void countEntries(@NonNull final ContentValues[] values,
+									 final int start, final int end, final boolean accepted) {
+		if (!METRICS.isEnabled())
+			return;
+		for (int i = start; i < end; ++i) {
+			final ContentValues value = values[i];
+			final String data = value != null ? value.getAsString(LogContract.Log.DATA) : null;
+			if (data == null)
+				continue; // skipped by the provider
+			final Integer level = value.getAsInteger(LogContract.Log.LEVEL);
+			final int l = level != null ? level : LogContract.Log.Level.DEBUG;
+			if (accepted) {
+				METRICS.onAccepted(l, data.length());
+			} else {
+				METRICS.onDropped(l);
+			}
+		}
+	}
+
+	/**
+	 * Inserts log entries using {@link LogContract.Log#METHOD_BULK_INSERT}. The entries are
+	 * sent as 3 parallel arrays in a single {@link Bundle}, instead of a {@link ContentValues}
+	 * map for each entry.
+	 *
+	 * @param session the session.
+	 * @param values  the log entries.
+	 * @param start   the index of the first entry to insert.
+	 * @param end     the index after the last entry to insert.
+	 * @return True, if the provider supports the method and the entries were inserted.
+	 */
+	private static boolean bulkInsertColumns(@NonNull final ILogSession session,
+											 @NonNull final ContentValues[] values,
+											 final int start, final int end) {
+		final long now = System.currentTimeMillis();
+		final int count = end - start;
+		final long[] times = new long[count];
+		final int[] levels = new int[count];
+		final String[] data = new String[count];
+		for (int i = 0; i < count; ++i) {
+			final ContentValues value = values[start + i];
+			if (value == null)
+				continue;
+			final Long time = value.getAsLong(LogContract.Log.TIME);
+			final Integer level = value.getAsInteger(LogContract.Log.LEVEL);
+			times[i] = time != null ? time : now;
+			levels[i] = level != null ? level : LogContract.Log.Level.DEBUG;
+			// Entries without data are skipped by the provider
+			data[i] = value.getAsString(LogContract.Log.DATA);
+		}
+
+		final Bundle extras = new Bundle();
+		extras.putLongArray(LogContract.Log.EXTRA_TIMES, times);
+		extras.putIntArray(LogContract.Log.EXTRA_LEVELS, levels);
+		extras.putStringArray(LogContract.Log.EXTRA_DATA, data);
+		final Uri uri = session.getSessionEntriesUri();
+		return session.getContext().getContentResolver()
+				.call(uri, LogContract.Log.METHOD_BULK_INSERT, uri.toString(), extras) != null;
+	}
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log;
+
+import android.content.ContentValues;
+
+import androidx.annotation.NonNull;
+
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogSink;
+
+/**
+ * A {@link LogSink} writing log entries to a log session using {@link Logger}, keeping
+ * their time.
+ */
+/* package */final class SessionLogSink implements LogSink {
+	private final ILogSession session;
+
+	SessionLogSink(@NonNull final ILogSession session) {
+		this.session = session;
+	}
+
+	@Override
+	public void write(final long time, final int level, @NonNull final String message) {
+		Logger.write(session, time, level, message);
+	}
+
+	@Override
+	public void write(@NonNull final LogBatch batch, final int start, final int end) {
+		final ContentValues[] values = new ContentValues[end - start];
+		for (int i = start; i < end; ++i) {
+			final ContentValues entry = new ContentValues();
+			entry.put(LogContract.Log.TIME, batch.getTime(i));
+			entry.put(LogContract.Log.LEVEL, batch.getLevel(i));
+			entry.put(LogContract.Log.DATA, batch.getData(i));
+			values[i - start] = entry;
+		}
+		Logger.log(session, values);
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.log.metrics.LogMetrics;
+
+/**
+ * Joins inserts from concurrent threads into shared transactions.
+ * <p>
+ * The first thread to insert becomes the leader. It waits for the group commit window, takes
+ * all inserts queued so far, including its own, and executes them in a single transaction.
+ * Inserts arriving in the meantime are queued and wait. When the group is committed, all
+ * callers in the group get their results, and the oldest waiting thread becomes the new leader.
+ * With the window set to 0 the inserts are grouped only when they arrive during a commit,
+ * so a single thread does not wait at all.
+ * <p>
+ * Fire-and-forget inserts, see {@link #enqueue(Uri, ContentValues)}, do not wait for their
+ * group. They are executed by the current leader, or by the enqueuing thread if there is none.
+ * A calling thread executes at most {@link #MAX_EXTRA_GROUPS} groups after its own, so that
+ * sustained fire-and-forget load can't keep it from returning. Fire-and-forget inserts queued
+ * after that are executed by a background thread, which leads until the queue is empty or
+ * a waiting thread takes over.
+ */
+/* package */class GroupCommitter {
+	private static final LogMetrics METRICS = LogMetrics.getInstance();
+	private static final String TAG = "GroupCommitter";
+	/** The number of fire-and-forget groups a calling thread executes after its own group. */
+	private static final int MAX_EXTRA_GROUPS = 1;
+
+	/**
+	 * The executor of a group of inserts.
+	 */
+	interface Executor {
+		/**
+		 * Executes all inserts from the group in a single transaction. The result or error of
+		 * each insert should be set in the request. If the transaction fails, the method
+		 * should throw.
+		 *
+		 * @param group the inserts to execute.
+		 */
+		void executeGroup(@NonNull List<Request> group);
+	}
+
+	static final class Request {
+		private static final int QUEUED = 0;
+		private static final int LEADER = 1;
+		private static final int DONE = 2;
+
+		final Uri uri;
+		final ContentValues values;
+		/** Whether the caller does not wait for the result. */
+		final boolean fireAndForget;
+		Uri result;
+		RuntimeException error;
+		private int state = QUEUED;
+
+		private Request(@NonNull final Uri uri, final ContentValues values, final boolean fireAndForget) {
+			this.uri = uri;
+			this.values = values;
+			this.fireAndForget = fireAndForget;
+		}
+	}
+
+	private final Executor mExecutor;
+	private final Object mLock = new Object();
+	private final ArrayList<Request> mQueue = new ArrayList<>();
+	private boolean mLeaderActive;
+	private volatile long mWindowMillis;
+
+	GroupCommitter(@NonNull final Executor executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * Sets the time the leader waits for other inserts before committing the group.
+	 *
+	 * @param millis the time in milliseconds, 0 to commit immediately.
+	 */
+	void setWindowMillis(final long millis) {
+		mWindowMillis = millis;
+	}
+
+	/**
+	 * Inserts the values as part of a group. The method returns when the group has been committed.
+	 *
+	 * @param uri    the insert uri.
+	 * @param values the values to insert.
+	 * @return The insert result.
+	 */
+	Uri insert(@NonNull final Uri uri, final ContentValues values) {
+		final Request request = new Request(uri, values, false);
+		boolean interrupted = false;
+		final boolean leader;
+		METRICS.onQueueDepthChanged(1);
+		synchronized (mLock) {
+			mQueue.add(request);
+			if (!mLeaderActive) {
+				mLeaderActive = true;
+				request.state = Request.LEADER;
+			}
+			while (request.state == Request.QUEUED) {
+				try {
+					mLock.wait();
+				} catch (final InterruptedException e) {
+					// The request is already queued, it has to be executed anyway.
+					interrupted = true;
+				}
+			}
+			leader = request.state == Request.LEADER;
+		}
+		if (leader) {
+			interrupted |= lead();
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (request.error != null)
+			throw request.error;
+		return request.result;
+	}
+
+	/**
+	 * Queues the values to be inserted as part of a group, without waiting for the result.
+	 * If another thread is leading, the method returns immediately. Otherwise the calling
+	 * thread becomes the leader and executes the group.
+	 *
+	 * @param uri    the insert uri.
+	 * @param values the values to insert.
+	 */
+	void enqueue(@NonNull final Uri uri, final ContentValues values) {
+		final Request request = new Request(uri, values, true);
+		METRICS.onQueueDepthChanged(1);
+		synchronized (mLock) {
+			mQueue.add(request);
+			if (mLeaderActive)
+				return;
+			mLeaderActive = true;
+			request.state = Request.LEADER;
+		}
+		if (lead()) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Executes the current group and hands the leadership over to the next waiting thread.
+	 * If only fire-and-forget inserts are queued, this thread executes up to
+	 * {@link #MAX_EXTRA_GROUPS} more groups and then passes the leadership to a background thread.
+	 *
+	 * @return True, if the thread was interrupted while waiting for the window.
+	 */
+	private boolean lead() {
+		boolean interrupted = false;
+		int extraGroups = 0;
+		while (true) {
+			interrupted |= executeGroup();
+			synchronized (mLock) {
+				if (!handOver())
+					return interrupted;
+				if (extraGroups++ == MAX_EXTRA_GROUPS) {
+					// The leadership passes to the background thread, mLeaderActive stays set
+					final Thread thread = new Thread(this::leadInBackground, TAG);
+					thread.setDaemon(true);
+					thread.start();
+					return interrupted;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes queued fire-and-forget inserts until the queue is empty or a waiting thread
+	 * becomes the leader.
+	 */
+	private void leadInBackground() {
+		boolean leading = true;
+		while (leading) {
+			executeGroup();
+			synchronized (mLock) {
+				leading = handOver();
+			}
+		}
+	}
+
+	/**
+	 * Makes the oldest waiting thread the leader.
+	 *
+	 * @return True, if there's no waiting thread, but there are queued fire-and-forget inserts,
+	 * which the current leader has to execute.
+	 */
+	private boolean handOver() {
+		for (final Request request : mQueue) {
+			if (!request.fireAndForget) {
+				request.state = Request.LEADER;
+				mLock.notifyAll();
+				return false;
+			}
+		}
+		if (mQueue.isEmpty()) {
+			mLeaderActive = false;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Executes all queued inserts in a single transaction and releases the waiting threads.
+	 *
+	 * @return True, if the thread was interrupted while waiting for the window.
+	 */
+	private boolean executeGroup() {
+		boolean interrupted = false;
+		final long window = mWindowMillis;
+		if (window > 0) {
+			try {
+				Thread.sleep(window);
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		final List<Request> group;
+		synchronized (mLock) {
+			group = new ArrayList<>(mQueue);
+			mQueue.clear();
+		}
+
+		RuntimeException failure = null;
+		try {
+			mExecutor.executeGroup(group);
+		} catch (final RuntimeException e) {
+			failure = e;
+		} finally {
+			METRICS.onQueueDepthChanged(-group.size());
+			// Whatever happens, the waiting threads must be released.
+			synchronized (mLock) {
+				for (final Request request : group) {
+					if (failure != null) {
+						request.result = null;
+						request.error = failure;
+					}
+					request.state = Request.DONE;
+				}
+				mLock.notifyAll();
+			}
+		}
+		return interrupted;
+	}
+}
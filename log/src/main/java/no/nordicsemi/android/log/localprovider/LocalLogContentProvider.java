@@ -41,18 +41,33 @@ import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.BaseColumns;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.core.LogFormatter;
+import no.nordicsemi.android.log.localprovider.LocalLogDatabaseHelper.SessionColumns;
+import no.nordicsemi.android.log.localprovider.LocalLogDatabaseHelper.SessionSummaryColumns;
 import no.nordicsemi.android.log.localprovider.LocalLogDatabaseHelper.Tables;
+import no.nordicsemi.android.log.metrics.LogMetrics;
+import no.nordicsemi.android.log.metrics.LogTrace;
 
 /**
  * If the nRF Logger application is not installed an app may use the LocalLogContentProvider to
@@ -69,21 +84,34 @@ import no.nordicsemi.android.log.localprovider.LocalLogDatabaseHelper.Tables;
 public abstract class LocalLogContentProvider extends ContentProvider {
 	private static final String TAG = "LocalLogContentProvider";
 	private static final String DB_TAG = "local_log_db";
+	private static final LogMetrics METRICS = LogMetrics.getInstance();
 
 	/**
 	 * Duration in ms to sleep after successfully yielding the lock during a batch operation.
+	 *
+	 * @deprecated The sleep time is set by the {@link YieldPolicy}.
 	 */
+	@Deprecated
 	protected static final int SLEEP_AFTER_YIELD_DELAY = 4000;
 
 	/**
-	 * Maximum number of operations allowed in a batch between yield points.
+	 * Maximum number of operations in a batch between yield points. If the batch does not
+	 * allow yielding often enough, a yield point is added automatically.
 	 */
 	private static final int MAX_OPERATIONS_PER_YIELD_POINT = 500;
 
 	/**
-	 * Number of inserts performed in bulk to allow before yielding the transaction.
+	 * Delay in ms after which observers are notified about entries inserted in
+	 * fire-and-forget mode.
 	 */
-	private static final int BULK_INSERTS_PER_YIELD_POINT = 50;
+	private static final int FIRE_AND_FORGET_NOTIFICATION_DELAY = 250;
+
+	private static final String INSERT_LOG = "INSERT INTO " + Tables.LOG + "(" +
+			LogContract.Log.SESSION_ID + ", " +
+			LogContract.Log.TIME + ", " +
+			LogContract.Log.LEVEL + ", " +
+			LogContract.Log.DATA +
+			") VALUES (?, ?, ?, ?)";
 
 	private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
@@ -92,6 +120,8 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 	private static final int SESSION_ID_LOG = 1022;
 	private static final int SESSION_ID_LOG_CONTENT = 1023;
 	private static final int SESSION_KEY = 1024;
+	private static final int SESSION_ID_STATS = 1025;
+	private static final int SESSION_ID_HISTOGRAM = 1026;
 
 	/**
 	 * Returns the provider authority. Use one based on your custom package name,
@@ -103,10 +133,22 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 
 	private static final ProjectionMap sSessionColumns;
 	private static final ProjectionMap sLogColumns;
+	private static final ProjectionMap sStatsColumns;
 	/**
 	 * Contains just BaseColumns._COUNT.
 	 */
 	private static final ProjectionMap sCountProjectionMap;
+	/**
+	 * Returns just BaseColumns._COUNT, read from the session summary. Like COUNT(*), it returns
+	 * a single row with 0 if the session does not exist.
+	 */
+	private static final String SUMMARY_COUNT_QUERY = "SELECT IFNULL((SELECT " +
+			LogContract.Session.ENTRY_COUNT + " FROM " + Tables.SESSION_SUMMARY +
+			" WHERE " + SessionSummaryColumns.SESSION_ID + "=?), 0) AS " + BaseColumns._COUNT;
+
+	private static final String SESSIONS_JOIN_SUMMARY = Tables.LOG_SESSIONS +
+			" LEFT OUTER JOIN " + Tables.SESSION_SUMMARY + " ON (" +
+			SessionSummaryColumns.CONCRETE_SESSION_ID + " = " + SessionColumns.CONCRETE_ID + ")";
 
 	static {
 		sSessionColumns = ProjectionMap.builder()
@@ -114,6 +156,10 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 				.add(LogContract.Session.KEY)
 				.add(LogContract.Session.NAME)
 				.add(LogContract.Session.CREATED_AT)
+				.add(LogContract.Session.ENTRY_COUNT)
+				.add(LogContract.Session.MAX_LEVEL)
+				.add(LogContract.Session.LAST_ENTRY_TIME)
+				.add(LogContract.Session.TOTAL_BYTES)
 				.build();
 
 		sLogColumns = ProjectionMap.builder()
@@ -124,17 +170,47 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 				.add(LogContract.Log.DATA)
 				.build();
 
+		sStatsColumns = ProjectionMap.builder()
+				.add(LogContract.Session.Stats.LEVEL)
+				.add(LogContract.Session.Stats.COUNT, "COUNT(*)")
+				.add(LogContract.Session.Stats.FIRST_TIME, "MIN(" + LogContract.Log.TIME + ")")
+				.add(LogContract.Session.Stats.LAST_TIME, "MAX(" + LogContract.Log.TIME + ")")
+				.build();
+
 		sCountProjectionMap = ProjectionMap.builder()
 				.add(BaseColumns._COUNT, "COUNT(*)")
 				.build();
 	}
 
 	private final ThreadLocal<LogTransaction> mTransactionHolder = new ThreadLocal<>();
-	private final ThreadLocal<LocalLogDatabaseHelper> mLocalDatabaseHelper = new ThreadLocal<>();
+	/**
+	 * The database helper. It's set in {@link #onCreate()}, before any other method is called.
+	 * <p>
+	 * The provider is called from multiple binder threads at the same time. Apart from the
+	 * thread-local transaction, it must not keep any mutable state used while reading or
+	 * writing data.
+	 */
 	private LocalLogDatabaseHelper mDatabaseHelper;
 
-	private final ContentValues mValues = new ContentValues();
-	private final String[] mSelectionArgs1 = new String[1];
+	private volatile YieldPolicy mYieldPolicy = YieldPolicy.DEFAULT;
+	private final AtomicLong mYieldCount = new AtomicLong();
+	private final AtomicLong mSleepCount = new AtomicLong();
+	private final AtomicLong mSleepMillis = new AtomicLong();
+
+	private final GroupCommitter mGroupCommitter = new GroupCommitter(this::insertGroup);
+	private volatile boolean mGroupCommitEnabled;
+
+	private final Object mRingHostLock = new Object();
+	/** The {@link SharedMemoryRingHost}, kept as Object as the class requires API 27. */
+	/* guarded by mRingHostLock */ private Object mRingHost;
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final AtomicBoolean mNotificationPending = new AtomicBoolean();
+	private final Runnable mPendingNotification = () -> {
+		mNotificationPending.set(false);
+		notifyChange(Uri.withAppendedPath(getAuthorityUri(),
+				LogContract.Session.SESSION_CONTENT_DIRECTORY));
+	};
 
 	/**
 	 * The database helper to serialize all transactions on. If non-null, any new transaction
@@ -164,6 +240,72 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 		mSerializeDbTag = tag;
 	}
 
+	/**
+	 * Sets the policy deciding when bulk inserts and batches yield the database lock to other
+	 * threads, e.g. readers showing the log, and how long they sleep afterwards.
+	 *
+	 * @param policy the new yield policy.
+	 */
+	public void setYieldPolicy(@NonNull final YieldPolicy policy) {
+		mYieldPolicy = policy;
+	}
+
+	/**
+	 * Returns the current yield policy.
+	 */
+	@NonNull
+	public YieldPolicy getYieldPolicy() {
+		return mYieldPolicy;
+	}
+
+	/**
+	 * Returns the number of times a write operation has yielded the database lock to
+	 * another thread.
+	 */
+	public long getYieldCount() {
+		return mYieldCount.get();
+	}
+
+	/**
+	 * Returns the number of times a write operation has slept after yielding.
+	 */
+	public long getSleepCount() {
+		return mSleepCount.get();
+	}
+
+	/**
+	 * Returns the total time in milliseconds write operations have slept after yielding.
+	 */
+	public long getSleepMillis() {
+		return mSleepMillis.get();
+	}
+
+	/**
+	 * Enables or disables group commit of single inserts. When enabled, inserts from concurrent
+	 * threads are executed together in a shared transaction, so that the throughput is not
+	 * limited by the commit time. Each {@link #insert(Uri, ContentValues)} call returns when
+	 * the group it belongs to has been committed.
+	 * <p>
+	 * Group commit is disabled by default.
+	 *
+	 * @param enabled true to enable group commit.
+	 * @see #setGroupCommitWindow(long)
+	 */
+	public void setGroupCommitEnabled(final boolean enabled) {
+		mGroupCommitEnabled = enabled;
+	}
+
+	/**
+	 * Sets the time in milliseconds the first insert of a group waits for other inserts to
+	 * join the group. With the default value 0 the inserts are grouped only when they arrive
+	 * while the previous group is being committed, which adds no latency to a single thread.
+	 *
+	 * @param millis the group commit window in milliseconds.
+	 */
+	public void setGroupCommitWindow(final long millis) {
+		mGroupCommitter.setWindowMillis(millis);
+	}
+
 	@Override
 	public boolean onCreate() {
 		try {
@@ -179,7 +321,6 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 
 	private boolean initialize() {
 		mDatabaseHelper = getDatabaseHelper(getContext());
-		mLocalDatabaseHelper.set(mDatabaseHelper);
 
 		// Set up the DB helper for keeping transactions serialized.
 		setDbHelperToSerializeOn(mDatabaseHelper, DB_TAG);
@@ -202,6 +343,12 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 		// Returns all sessions with given key
 		matcher.addURI(authority, "session/key/*", SESSION_KEY);
 
+		// Returns number of log entries and first and last entry time for each level
+		matcher.addURI(authority, "session/#/stats", SESSION_ID_STATS);
+
+		// Returns number of log entries in time buckets, by default 1 second long
+		matcher.addURI(authority, "session/#/histogram", SESSION_ID_HISTOGRAM);
+
 		return true;
 	}
 
@@ -220,176 +367,534 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 	@Override
 	public Cursor query(@NonNull final Uri uri, final String[] projection, String selection,
 						String[] selectionArgs, final String sortOrder) {
-		mLocalDatabaseHelper.set(mDatabaseHelper);
-		final SQLiteDatabase db = mLocalDatabaseHelper.get().getReadableDatabase();
-
-		final SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-		final int match = sUriMatcher.match(uri);
-		switch (match) {
-			case SESSION_ID: {
-				final String id = uri.getLastPathSegment();
-				qb.setTables(Tables.LOG_SESSIONS);
-				qb.setProjectionMap(sSessionColumns);
-				qb.appendWhere(LogContract.Session._ID + "=?");
-				selectionArgs = appendSelectionArgs(selectionArgs, id);
-				break;
-			}
-			case SESSION_ID_LOG:
-			case SESSION_ID_LOG_CONTENT: {
-				final String id = uri.getPathSegments().get(1);
-				qb.setTables(Tables.LOG);
-				qb.setProjectionMap(sLogColumns);
-				qb.appendWhere(LogContract.Log.SESSION_ID + "=?");
-				selectionArgs = appendSelectionArgs(selectionArgs, id);
-				if (match != SESSION_ID_LOG_CONTENT)
+		LogTrace.begin("LocalLogProvider.query");
+		try {
+			final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
+
+			final SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
+			final int match = sUriMatcher.match(uri);
+			switch (match) {
+				case SESSION: {
+					qb.setTables(SESSIONS_JOIN_SUMMARY);
+					qb.setProjectionMap(sSessionColumns);
+					break;
+				}
+				case SESSION_ID: {
+					final String id = uri.getLastPathSegment();
+					qb.setTables(SESSIONS_JOIN_SUMMARY);
+					qb.setProjectionMap(sSessionColumns);
+					qb.appendWhere(LogContract.Session._ID + "=?");
+					selectionArgs = appendSelectionArgs(selectionArgs, id);
+					break;
+				}
+				case SESSION_KEY: {
+					final String key = uri.getLastPathSegment();
+					qb.setTables(SESSIONS_JOIN_SUMMARY);
+					qb.setProjectionMap(sSessionColumns);
+					qb.appendWhere(LogContract.Session.KEY + "=?");
+					selectionArgs = appendSelectionArgs(selectionArgs, key);
 					break;
-
-				// prepare content builder
-				final StringBuilder builder = new StringBuilder();
-
-				// get session data
-				final String[] sessionProjection = new String[]{LogContract.Session.KEY, LogContract.Session.NAME, LogContract.Session.CREATED_AT};
-				final String sessionSelection = LogContract.Session._ID + "=?";
-				final String[] sessionSelArgs = mSelectionArgs1;
-				sessionSelArgs[0] = id;
-				Cursor c = db.query(Tables.LOG_SESSIONS, sessionProjection, sessionSelection, sessionSelArgs, null, null, null);
-				try {
-					if (c.moveToNext()) {
-						final Calendar calendar = Calendar.getInstance();
-						calendar.setTimeInMillis(c.getLong(2 /* CREATED_AT */));
-						final String appName = getContext().getApplicationInfo().loadLabel(getContext().getPackageManager()).toString();
-						builder.append(String.format("%s, %tF\n", appName, calendar));
-						final String name = c.getString(1 /* NAME */);
-						builder.append(String.format("%s (%s)\n", name != null ? name : "No name", c.getString(0 /* KEY */)));
-					}
-				} finally {
-					c.close();
 				}
+				case SESSION_ID_LOG:
+				case SESSION_ID_LOG_CONTENT: {
+					final String id = uri.getPathSegments().get(1);
+					if (match == SESSION_ID_LOG && selection == null && isCountProjection(projection)) {
+						// The number of entries is kept in the session summary, no need to count them.
+						final Cursor c = db.rawQuery(SUMMARY_COUNT_QUERY, new String[]{id});
+						c.setNotificationUri(getContext().getContentResolver(), uri);
+						return c;
+					}
+					qb.setTables(Tables.LOG);
+					qb.setProjectionMap(sLogColumns);
+					qb.appendWhere(LogContract.Log.SESSION_ID + "=?");
+					selectionArgs = appendSelectionArgs(selectionArgs, id);
+					if (match != SESSION_ID_LOG_CONTENT)
+						break;
+
+					// prepare content builder
+					final StringBuilder builder = new StringBuilder();
+					final LogFormatter formatter = new LogFormatter();
+
+					// get session data
+					final String[] sessionProjection = new String[]{LogContract.Session.KEY, LogContract.Session.NAME, LogContract.Session.CREATED_AT};
+					final String sessionSelection = LogContract.Session._ID + "=?";
+					final String[] sessionSelArgs = new String[]{id};
+					Cursor c = db.query(Tables.LOG_SESSIONS, sessionProjection, sessionSelection, sessionSelArgs, null, null, null);
+					try {
+						if (c.moveToNext()) {
+							final String appName = getContext().getApplicationInfo().loadLabel(getContext().getPackageManager()).toString();
+							formatter.appendHeader(builder, appName, c.getLong(2 /* CREATED_AT */),
+									c.getString(1 /* NAME */), c.getString(0 /* KEY */));
+						}
+					} finally {
+						c.close();
+					}
 
-				// get log entries
-				final String[] entryProjection = new String[]{LogContract.Log.TIME, LogContract.Log.LEVEL, LogContract.Log.DATA};
-				c = query(uri, db, qb, entryProjection, selection, selectionArgs, LogContract.Log.TIME + " ASC");
-				try {
-					final Calendar calendar = Calendar.getInstance();
-					while (c.moveToNext()) {
-						builder.append(getLevelAsChar(c.getInt(1 /* LEVEL */)));
-						calendar.setTimeInMillis(c.getLong(0 /* TIME */));
-						builder.append(String.format("\t%1$tR:%1$tS.%1$tL\t%2$s\n", calendar, c.getString(2 /* DATA */)));
+					// get log entries
+					final String[] entryProjection = new String[]{LogContract.Log.TIME, LogContract.Log.LEVEL, LogContract.Log.DATA};
+					c = query(uri, db, qb, entryProjection, selection, selectionArgs, LogContract.Log.TIME + " ASC");
+					try {
+						while (c.moveToNext()) {
+							formatter.appendEntry(builder, c.getLong(0 /* TIME */),
+									c.getInt(1 /* LEVEL */), c.getString(2 /* DATA */));
+						}
+					} finally {
+						c.close();
 					}
-				} finally {
-					c.close();
-				}
 
-				final MatrixCursor cursor = new MatrixCursor(new String[]{LogContract.Session.Content.CONTENT});
-				cursor.addRow(new String[]{builder.toString()});
-				return cursor;
+					final MatrixCursor cursor = new MatrixCursor(new String[]{LogContract.Session.Content.CONTENT});
+					cursor.addRow(new String[]{builder.toString()});
+					return cursor;
+				}
+				case SESSION_ID_STATS: {
+					// The aggregation is served from the (session_id, level, time) index.
+					final String id = uri.getPathSegments().get(1);
+					qb.setTables(Tables.LOG);
+					qb.setProjectionMap(sStatsColumns);
+					qb.appendWhere(LogContract.Log.SESSION_ID + "=?");
+					selectionArgs = appendSelectionArgs(selectionArgs, id);
+					return query(uri, db, qb, projection, selection, selectionArgs,
+							LogContract.Session.Stats.LEVEL,
+							sortOrder != null ? sortOrder : LogContract.Session.Stats.LEVEL + " ASC");
+				}
+				case SESSION_ID_HISTOGRAM: {
+					final String id = uri.getPathSegments().get(1);
+					final long bucket = getBucket(uri);
+					if (bucket <= 0)
+						throw new IllegalArgumentException("Invalid bucket width: " + bucket);
+
+					// The bucket width is a validated number, so it's safe to put it into the query.
+					final ProjectionMap histogramColumns = ProjectionMap.builder()
+							.add(LogContract.Session.Histogram.BUCKET_START,
+									"(" + LogContract.Log.TIME + " / " + bucket + ") * " + bucket)
+							.add(LogContract.Session.Histogram.COUNT, "COUNT(*)")
+							.build();
+					qb.setTables(Tables.LOG);
+					qb.setProjectionMap(histogramColumns);
+					qb.appendWhere(LogContract.Log.SESSION_ID + "=?");
+					selectionArgs = appendSelectionArgs(selectionArgs, id);
+					return query(uri, db, qb, projection, selection, selectionArgs,
+							LogContract.Session.Histogram.BUCKET_START,
+							sortOrder != null ? sortOrder : LogContract.Session.Histogram.BUCKET_START + " ASC");
+				}
 			}
+			return query(uri, db, qb, projection, selection, selectionArgs, sortOrder);
+		} finally {
+			LogTrace.end();
 		}
-		return query(uri, db, qb, projection, selection, selectionArgs, sortOrder);
 	}
 
-	private char getLevelAsChar(final int level) {
-		switch (level) {
-			case LogContract.Log.Level.VERBOSE:
-				return 'V';
-			case LogContract.Log.Level.INFO:
-				return 'I';
-			case LogContract.Log.Level.APPLICATION:
-				return 'A';
-			case LogContract.Log.Level.WARNING:
-				return 'W';
-			case LogContract.Log.Level.ERROR:
-				return 'E';
-			default:
-				return 'D';
+	private long getBucket(@NonNull final Uri uri) {
+		final String bucket = uri.getQueryParameter(LogContract.Session.Histogram.PARAM_BUCKET);
+		if (bucket == null)
+			return LogContract.Session.Histogram.DEFAULT_BUCKET;
+		try {
+			return Long.parseLong(bucket);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid bucket width: " + bucket);
 		}
 	}
 
 	@Override
 	public int bulkInsert(@NonNull final Uri uri, @NonNull final ContentValues[] values) {
-		final LogTransaction transaction = startTransaction(true);
-		int numValues = values.length;
-		int opCount = 0;
-		boolean dirty = false;
+		LogTrace.begin("LocalLogProvider.bulkInsert");
+		LogTrace.counter("LocalLogProvider.batchSize", values.length);
+		final long start = METRICS.startTime();
 		try {
-			for (ContentValues value : values) {
-				if (value == null)
-					continue;
-				if (insertInTransaction(uri, value) != null)
-					dirty = true;
-				if (++opCount >= BULK_INSERTS_PER_YIELD_POINT) {
-					opCount = 0;
-					try {
-						yieldTransaction(transaction);
-					} catch (RuntimeException re) {
-						transaction.markYieldFailed();
-						throw re;
+			final LogTransaction transaction = startTransaction(true);
+			final YieldPolicy policy = mYieldPolicy;
+			int numValues = values.length;
+			int opCount = 0;
+			boolean dirty = false;
+			try {
+				for (ContentValues value : values) {
+					if (value == null)
+						continue;
+					if (insertInTransaction(uri, value) != null)
+						dirty = true;
+					if (policy.shouldYield(++opCount, transaction.getMillisSinceYield())) {
+						opCount = 0;
+						try {
+							yieldTransaction(transaction);
+						} catch (RuntimeException re) {
+							transaction.markYieldFailed();
+							throw re;
+						}
 					}
 				}
+				if (dirty) {
+					transaction.markDirty();
+				}
+				transaction.markSuccessful(true);
+			} finally {
+				endTransaction(uri, true);
 			}
-			if (dirty) {
-				transaction.markDirty();
-			}
-			transaction.markSuccessful(true);
+			return numValues;
 		} finally {
-			endTransaction(uri, true);
+			METRICS.onProviderCall(LogMetrics.OP_BULK_INSERT, start);
+			LogTrace.end();
 		}
-		return numValues;
 	}
 
+	/**
+	 * Applies the batch of operations.
+	 * <p>
+	 * The batch is atomic only between committed yields. Besides yield points requested with
+	 * {@link ContentProviderOperation.Builder#withYieldAllowed(boolean)}, a yield point is added
+	 * automatically after every {@link #MAX_OPERATIONS_PER_YIELD_POINT} operations. At each
+	 * automatic yield point the operations applied so far are committed, so that batches of any
+	 * size can be applied without blocking readers for long. Other yield points commit only if
+	 * another thread is waiting for the database lock. If an operation fails, all operations
+	 * since the last committed yield are rolled back. Back references to results of operations
+	 * before it stay valid.
+	 * <p>
+	 * A yield is also attempted when the lock has been held for longer than
+	 * {@link YieldPolicy#getMaxLockHoldMillis()}, see {@link #setYieldPolicy(YieldPolicy)}.
+	 */
 	@Override
 	@NonNull
 	public ContentProviderResult[] applyBatch(@NonNull final ArrayList<ContentProviderOperation> operations)
 			throws OperationApplicationException {
-		int ypCount = 0;
-		int opCount = 0;
-		final LogTransaction transaction = startTransaction(true);
+		LogTrace.begin("LocalLogProvider.applyBatch");
+		LogTrace.counter("LocalLogProvider.batchSize", operations.size());
+		final long start = METRICS.startTime();
 		try {
-			final int numOperations = operations.size();
-			final ContentProviderResult[] results = new ContentProviderResult[numOperations];
-			for (int i = 0; i < numOperations; i++) {
-				if (++opCount >= MAX_OPERATIONS_PER_YIELD_POINT) {
-					throw new OperationApplicationException(
-							"Too many content provider operations between yield points. " +
-							"The maximum number of operations per yield point is " +
-							MAX_OPERATIONS_PER_YIELD_POINT, ypCount);
-				}
-				final ContentProviderOperation operation = operations.get(i);
-				if (i > 0 && operation.isYieldAllowed()) {
-					opCount = 0;
-					try {
-						if (yieldTransaction(transaction)) {
-							ypCount++;
+			int opCount = 0;
+			final LogTransaction transaction = startTransaction(true);
+			final long maxLockHoldMillis = mYieldPolicy.getMaxLockHoldMillis();
+			try {
+				final int numOperations = operations.size();
+				final ContentProviderResult[] results = new ContentProviderResult[numOperations];
+				for (int i = 0; i < numOperations; i++) {
+					final ContentProviderOperation operation = operations.get(i);
+					if (i > 0 && (operation.isYieldAllowed() || opCount >= MAX_OPERATIONS_PER_YIELD_POINT
+							|| transaction.getMillisSinceYield() >= maxLockHoldMillis)) {
+						final boolean forced = opCount >= MAX_OPERATIONS_PER_YIELD_POINT;
+						opCount = 0;
+						try {
+							// If no other thread is waiting for the lock, the yield does not commit.
+							// Commit the sub-transaction anyway if the yield point was added here.
+							if (!yieldTransaction(transaction) && forced) {
+								transaction.commitAndRestart();
+							}
+						} catch (RuntimeException re) {
+							transaction.markYieldFailed();
+							throw re;
 						}
-					} catch (RuntimeException re) {
-						transaction.markYieldFailed();
-						throw re;
 					}
+					results[i] = operation.apply(this, results, i);
+					opCount++;
 				}
-				results[i] = operation.apply(this, results, i);
+				transaction.markSuccessful(true);
+				return results;
+			} finally {
+				endTransaction(LogContract.Session.CONTENT_URI, true);
+			}
+		} finally {
+			METRICS.onProviderCall(LogMetrics.OP_APPLY_BATCH, start);
+			LogTrace.end();
+		}
+	}
+
+	@Override
+	public Bundle call(@NonNull final String method, final String arg, final Bundle extras) {
+		if (LogContract.Log.METHOD_BULK_INSERT.equals(method)) {
+			if (arg == null || extras == null)
+				throw new IllegalArgumentException("Entries Uri and entries are required");
+			final long start = METRICS.startTime();
+			final int count;
+			try {
+				count = bulkInsert(Uri.parse(arg),
+						extras.getLongArray(LogContract.Log.EXTRA_TIMES),
+						extras.getIntArray(LogContract.Log.EXTRA_LEVELS),
+						extras.getStringArray(LogContract.Log.EXTRA_DATA));
+			} finally {
+				METRICS.onProviderCall(LogMetrics.OP_BULK_INSERT, start);
+			}
+			final Bundle result = new Bundle();
+			result.putInt(LogContract.Log.EXTRA_COUNT, count);
+			return result;
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1 && extras != null) {
+			final Bundle result = getRingHost().call(method, extras);
+			if (result != null)
+				return result;
+		}
+		return super.call(method, arg, extras);
+	}
+
+	@RequiresApi(api = Build.VERSION_CODES.O_MR1)
+	@NonNull
+	private SharedMemoryRingHost getRingHost() {
+		synchronized (mRingHostLock) {
+			if (mRingHost == null) {
+				mRingHost = new SharedMemoryRingHost(this::drainRing);
+			}
+			return (SharedMemoryRingHost) mRingHost;
+		}
+	}
+
+	/**
+	 * Inserts the log entries given as parallel arrays using a single compiled statement.
+	 *
+	 * @param uri    the session entries Uri.
+	 * @param times  the entry times, or null to use the current time.
+	 * @param levels the entry levels.
+	 * @param data   the entry data. Entries with null data are skipped.
+	 * @return The number of inserted entries.
+	 */
+	private int bulkInsert(@NonNull final Uri uri, @Nullable final long[] times,
+						   @Nullable final int[] levels, @Nullable final String[] data) {
+		if (sUriMatcher.match(uri) != SESSION_ID_LOG)
+			throw new IllegalArgumentException("Invalid entries Uri: " + uri);
+		if (levels == null || data == null || levels.length != data.length
+				|| (times != null && times.length != data.length))
+			throw new IllegalArgumentException("Entry arrays must be of the same length");
+
+		final long sessionId = Long.parseLong(uri.getPathSegments().get(1));
+		final long now = System.currentTimeMillis();
+		final LogTransaction transaction = startTransaction(true);
+		try {
+			final LogEntryInserter inserter = new LogEntryInserter(transaction);
+			try {
+				for (int i = 0; i < data.length; ++i) {
+					if (data[i] == null)
+						continue;
+					inserter.insert(sessionId, times != null ? times[i] : now, levels[i], data[i]);
+				}
+			} finally {
+				inserter.close();
 			}
 			transaction.markSuccessful(true);
-			return results;
+			return inserter.getInsertedCount();
 		} finally {
-			endTransaction(LogContract.Session.CONTENT_URI, true);
+			endTransaction(uri, true);
+		}
+	}
+
+	/**
+	 * Inserts the records written to a shared memory ring between the given positions.
+	 * <p>
+	 * Records which fail to be inserted are dropped. If the ring is corrupted, the remaining
+	 * records are dropped, as they can't be read. If the transaction fails, the position after
+	 * the last committed record is returned, so that the next drain continues from there
+	 * without inserting any record twice.
+	 *
+	 * @return The new read position.
+	 */
+	/* package */ long drainRing(@NonNull final SharedMemoryRing ring, final long readPosition,
+								 final long writePosition) {
+		LogEntryInserter inserter = null;
+		try {
+			final LogTransaction transaction = startTransaction(true);
+			try {
+				inserter = new LogEntryInserter(transaction, readPosition);
+				long position;
+				try {
+					position = ring.read(readPosition, writePosition, inserter);
+				} catch (final IllegalStateException e) {
+					Log.e(TAG, "Log ring corrupted, dropping records", e);
+					position = writePosition;
+				} finally {
+					inserter.close();
+				}
+				transaction.markSuccessful(true);
+				return position;
+			} finally {
+				endTransaction(LogContract.Session.CONTENT_URI, true);
+			}
+		} catch (final RuntimeException e) {
+			Log.e(TAG, "Draining log ring failed", e);
+			return inserter != null ? inserter.getCommittedPosition() : readPosition;
+		}
+	}
+
+	/**
+	 * Inserts log entries using a single compiled statement, yielding the transaction
+	 * according to the current {@link YieldPolicy}.
+	 * <p>
+	 * Reading a ring, it keeps the position after the last record committed by a yield.
+	 */
+	private final class LogEntryInserter implements SharedMemoryRing.Consumer {
+		private final LogTransaction mTransaction;
+		private final SQLiteStatement mStatement;
+		private final YieldPolicy mPolicy = mYieldPolicy;
+		private int mOpCount;
+		private int mInserted;
+		private long mCommittedPosition;
+
+		private LogEntryInserter(@NonNull final LogTransaction transaction) {
+			this(transaction, 0);
+		}
+
+		private LogEntryInserter(@NonNull final LogTransaction transaction, final long readPosition) {
+			mTransaction = transaction;
+			mStatement = getTransactionDatabase().compileStatement(INSERT_LOG);
+			mCommittedPosition = readPosition;
+		}
+
+		@Override
+		public void onRecord(final long sessionId, final long time, final int level,
+							 @NonNull final String data, final long end) {
+			final boolean committed;
+			try {
+				committed = insert(sessionId, time, level, data);
+			} catch (final SQLiteException e) {
+				// A bad record, e.g. of a deleted session, must not block the ring.
+				Log.w(TAG, "Dropping log record: " + e.getMessage());
+				METRICS.onDropped(level);
+				return;
+			}
+			if (committed)
+				mCommittedPosition = end;
+		}
+
+		/**
+		 * Inserts the entry.
+		 *
+		 * @return True, if the transaction was committed after inserting the entry.
+		 */
+		private boolean insert(final long sessionId, final long time, final int level, @NonNull final String data) {
+			mStatement.bindLong(1, sessionId);
+			mStatement.bindLong(2, time);
+			mStatement.bindLong(3, level);
+			mStatement.bindString(4, data);
+			if (mStatement.executeInsert() >= 0) {
+				if (mInserted++ == 0)
+					mTransaction.markDirty();
+			}
+			if (mPolicy.shouldYield(++mOpCount, mTransaction.getMillisSinceYield())) {
+				mOpCount = 0;
+				try {
+					return yieldTransaction(mTransaction);
+				} catch (RuntimeException re) {
+					mTransaction.markYieldFailed();
+					throw re;
+				}
+			}
+			return false;
+		}
+
+		private int getInsertedCount() {
+			return mInserted;
+		}
+
+		/**
+		 * Returns the ring position after the last record committed by a yield.
+		 */
+		private long getCommittedPosition() {
+			return mCommittedPosition;
+		}
+
+		private void close() {
+			mStatement.close();
 		}
 	}
 
 	@Override
 	public Uri insert(@NonNull final Uri uri, final ContentValues values) {
+		final long start = METRICS.startTime();
+		try {
+			if (isFireAndForget(uri)) {
+				insertFireAndForget(uri, values);
+				return uri;
+			}
+
+			// Inserts being part of a batch are already in a transaction.
+			if (mGroupCommitEnabled && mTransactionHolder.get() == null) {
+				return mGroupCommitter.insert(uri, values);
+			}
+
+			final LogTransaction transaction = startTransaction(false);
+			try {
+				final Uri result = insertInTransaction(uri, values);
+				if (result != null) {
+					transaction.markDirty();
+				}
+				transaction.markSuccessful(false);
+				return result;
+			} finally {
+				endTransaction(uri, false);
+			}
+		} finally {
+			METRICS.onProviderCall(LogMetrics.OP_INSERT, start);
+		}
+	}
+
+	/**
+	 * Returns whether the log entry should be inserted in fire-and-forget mode.
+	 * See {@link LogContract.Log#PARAM_FIRE_AND_FORGET}.
+	 */
+	private boolean isFireAndForget(@NonNull final Uri uri) {
+		return uri.getQuery() != null
+				&& uri.getBooleanQueryParameter(LogContract.Log.PARAM_FIRE_AND_FORGET, false)
+				&& sUriMatcher.match(uri) == SESSION_ID_LOG;
+	}
+
+	/**
+	 * Inserts the log entry without building the result Uri. Instead of marking the transaction
+	 * dirty, which would notify observers immediately, a single delayed notification is
+	 * scheduled for all entries inserted in the meantime.
+	 * <p>
+	 * With group commit enabled, the entry joins the current group without waiting for it to be
+	 * committed.
+	 */
+	private void insertFireAndForget(@NonNull final Uri uri, final ContentValues values) {
+		if (mGroupCommitEnabled && mTransactionHolder.get() == null) {
+			mGroupCommitter.enqueue(uri, values);
+			return;
+		}
+
 		final LogTransaction transaction = startTransaction(false);
 		try {
-			final Uri result = insertInTransaction(uri, values);
-			if (result != null) {
-				transaction.markDirty();
+			final long id = insertLogEntry(uri, values);
+			if (id >= 0) {
+				scheduleNotification();
 			}
 			transaction.markSuccessful(false);
-			return result;
 		} finally {
 			endTransaction(uri, false);
 		}
 	}
 
+	private void scheduleNotification() {
+		if (mNotificationPending.compareAndSet(false, true)) {
+			mHandler.postDelayed(mPendingNotification, FIRE_AND_FORGET_NOTIFICATION_DELAY);
+		}
+	}
+
+	/**
+	 * Executes a group of inserts from concurrent threads in a single transaction.
+	 * An insert failing does not affect other inserts in the group. Fire-and-forget inserts
+	 * schedule a delayed notification, like outside a group.
+	 */
+	private void insertGroup(@NonNull final List<GroupCommitter.Request> group) {
+		final LogTransaction transaction = startTransaction(true);
+		boolean dirty = false;
+		try {
+			for (final GroupCommitter.Request request : group) {
+				try {
+					if (request.fireAndForget) {
+						if (insertLogEntry(request.uri, request.values) >= 0)
+							scheduleNotification();
+						continue;
+					}
+					request.result = insertInTransaction(request.uri, request.values);
+					if (request.result != null)
+						dirty = true;
+				} catch (final RuntimeException e) {
+					request.error = e;
+				}
+			}
+			if (dirty) {
+				transaction.markDirty();
+			}
+			transaction.markSuccessful(true);
+		} finally {
+			endTransaction(group.get(0).uri, true);
+		}
+	}
+
 	@Override
 	public int delete(@NonNull final Uri uri, final String selection, final String[] selectionArgs) {
 		LogTransaction transaction = startTransaction(false);
@@ -424,31 +929,34 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 	private Cursor query(final Uri uri, final SQLiteDatabase db, final SQLiteQueryBuilder qb,
 						 final String[] projection, final String selection,
 						 final String[] selectionArgs, final String sortOrder) {
-		if (projection != null && projection.length == 1 && BaseColumns._COUNT.equals(projection[0])) {
+		if (isCountProjection(projection)) {
 			qb.setProjectionMap(sCountProjectionMap);
 		}
-		final Cursor c = qb.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+		return query(uri, db, qb, projection, selection, selectionArgs, null, sortOrder);
+	}
+
+	private Cursor query(final Uri uri, final SQLiteDatabase db, final SQLiteQueryBuilder qb,
+						 final String[] projection, final String selection,
+						 final String[] selectionArgs, final String groupBy,
+						 final String sortOrder) {
+		final Cursor c = qb.query(db, projection, selection, selectionArgs, groupBy, null, sortOrder);
 		if (c != null) {
 			c.setNotificationUri(getContext().getContentResolver(), uri);
 		}
 		return c;
 	}
 
-	protected Uri insertInTransaction(@NonNull final Uri uri, final ContentValues values) {
-		mLocalDatabaseHelper.set(mDatabaseHelper);
+	private static boolean isCountProjection(final String[] projection) {
+		return projection != null && projection.length == 1 && BaseColumns._COUNT.equals(projection[0]);
+	}
 
+	protected Uri insertInTransaction(@NonNull final Uri uri, final ContentValues values) {
 		final int match = sUriMatcher.match(uri);
 		long id = 0;
 
 		switch (match) {
 			case SESSION_ID_LOG: {
-				final long sessionId = Long.parseLong(uri.getPathSegments().get(1));
-
-				// This allows the time to be set using the bulk insert
-				if (!values.containsKey(LogContract.Log.TIME))
-					values.put(LogContract.Log.TIME, System.currentTimeMillis());
-				values.put(LogContract.Log.SESSION_ID, sessionId);
-				id = insertLog(uri, values);
+				id = insertLogEntry(uri, values);
 				break;
 			}
 			case SESSION: {
@@ -482,28 +990,31 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 		return ContentUris.withAppendedId(uri, id);
 	}
 
+	private long insertLogEntry(@NonNull final Uri uri, final ContentValues values) {
+		final long sessionId = Long.parseLong(uri.getPathSegments().get(1));
+
+		// This allows the time to be set using the bulk insert
+		if (!values.containsKey(LogContract.Log.TIME))
+			values.put(LogContract.Log.TIME, System.currentTimeMillis());
+		values.put(LogContract.Log.SESSION_ID, sessionId);
+		return insertLog(uri, values);
+	}
+
 	@SuppressWarnings("unused")
 	private long insertSession(final Uri uri, final ContentValues values) {
-		mValues.clear();
-		mValues.putAll(values);
-
-		final SQLiteDatabase db = mLocalDatabaseHelper.get().getWritableDatabase();
-		return db.insert(Tables.LOG_SESSIONS, null, mValues);
+		final SQLiteDatabase db = getTransactionDatabase();
+		return db.insert(Tables.LOG_SESSIONS, null, values);
 	}
 
 	@SuppressWarnings("unused")
 	private long insertLog(final Uri uri, final ContentValues values) {
-		mValues.clear();
-		mValues.putAll(values);
-
-		final SQLiteDatabase db = mLocalDatabaseHelper.get().getWritableDatabase();
-		return db.insert(Tables.LOG, null, mValues);
+		final SQLiteDatabase db = getTransactionDatabase();
+		return db.insert(Tables.LOG, null, values);
 	}
 
 	@SuppressWarnings("unused")
 	private int deleteInTransaction(final Uri uri, final String selection,
 									final String[] selectionArgs) {
-		mLocalDatabaseHelper.set(mDatabaseHelper);
 		final int match = sUriMatcher.match(uri);
 
 		switch (match) {
@@ -519,16 +1030,15 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 	}
 
 	private int deleteSessions() {
-		final SQLiteDatabase db = mLocalDatabaseHelper.get().getWritableDatabase();
+		final SQLiteDatabase db = getTransactionDatabase();
 
 		db.delete(Tables.LOG, null, null);
 		return db.delete(Tables.LOG_SESSIONS, null, null);
 	}
 
 	private int deleteSession(final long sessionId) {
-		final SQLiteDatabase db = mLocalDatabaseHelper.get().getWritableDatabase();
-		final String[] args = mSelectionArgs1;
-		args[0] = String.valueOf(sessionId);
+		final SQLiteDatabase db = getTransactionDatabase();
+		final String[] args = new String[]{String.valueOf(sessionId)};
 
 		db.delete(Tables.LOG, LogContract.Log.SESSION_ID + "=?", args);
 		return db.delete(Tables.LOG_SESSIONS, LogContract.Session._ID + "=?", args);
@@ -540,6 +1050,16 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 		throw new UnsupportedOperationException("Updating log is not supported. You can not change the history.");
 	}
 
+	/**
+	 * Returns the database enlisted in the current thread's transaction. This avoids
+	 * synchronizing on the database helper for each write.
+	 */
+	private SQLiteDatabase getTransactionDatabase() {
+		final LogTransaction transaction = mTransactionHolder.get();
+		final SQLiteDatabase db = transaction != null ? transaction.getDbForTag(DB_TAG) : null;
+		return db != null ? db : mDatabaseHelper.getWritableDatabase();
+	}
+
 	/**
 	 * If we are not yet already in a transaction, this starts one (on the DB to serialize on,
 	 * if present) and sets the thread-local transaction variable for tracking.
@@ -587,7 +1107,27 @@ public abstract class LocalLogContentProvider extends ContentProvider {
 	private boolean yieldTransaction(LogTransaction transaction) {
 		// Now proceed with the DB yield.
 		final SQLiteDatabase db = transaction.getDbForTag(DB_TAG);
-		return db != null && db.yieldIfContendedSafely(SLEEP_AFTER_YIELD_DELAY);
+		if (db == null)
+			return false;
+
+		final long sleepMillis = mYieldPolicy.getSleepAfterYieldMillis(transaction.getContendedYields());
+		LogTrace.begin("LogTransaction.yield");
+		final boolean yielded;
+		try {
+			yielded = db.yieldIfContendedSafely(sleepMillis);
+		} finally {
+			LogTrace.end();
+		}
+		transaction.onYieldAttempted(yielded);
+		LogTrace.counter("LogTransaction.contendedYields", transaction.getContendedYields());
+		if (yielded) {
+			mYieldCount.incrementAndGet();
+			if (sleepMillis > 0) {
+				mSleepCount.incrementAndGet();
+				mSleepMillis.addAndGet(sleepMillis);
+			}
+		}
+		return yielded;
 	}
 
 	protected void notifyChange(final Uri uri) {
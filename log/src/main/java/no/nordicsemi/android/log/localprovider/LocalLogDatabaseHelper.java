@@ -50,13 +50,29 @@ import android.provider.BaseColumns;
 	/**
 	 * The database version
 	 */
-	private static final int DATABASE_VERSION = 1;
+	private static final int DATABASE_VERSION = 3;
 
 	public interface Tables {
 		/** Log sessions table. See {@link LogContract.Session} for column names */
 		String LOG_SESSIONS = "sessions";
 		/** Log entries table. See {@link LogContract.Log} for column names */
 		String LOG = "log";
+		/** Session summary table. See {@link LogContract.Session} for column names */
+		String SESSION_SUMMARY = "session_summary";
+	}
+
+	public interface Indexes {
+		/** Index of log entries by session, level and time. Covers statistics and histograms. */
+		String LOG_SESSION_LEVEL_TIME = "log_session_level_time";
+	}
+
+	public interface Triggers {
+		/** Creates the summary row for a new session. */
+		String SESSION_INSERTED = "session_inserted";
+		/** Removes the summary row of a deleted session. */
+		String SESSION_DELETED = "session_deleted";
+		/** Updates the summary of the session the log entry was added to. */
+		String LOG_INSERTED = "log_inserted";
 	}
 
 	public interface Projections {
@@ -75,6 +91,11 @@ import android.provider.BaseColumns;
 		String CONCRETE_MARK = Tables.LOG_SESSIONS + "." + LogContract.Session.MARK;
 	}
 
+	public interface SessionSummaryColumns {
+		String SESSION_ID = "session_id";
+		String CONCRETE_SESSION_ID = Tables.SESSION_SUMMARY + "." + SESSION_ID;
+	}
+
 	public interface LogColumns {
 		String CONCRETE_ID = Tables.LOG + "." + BaseColumns._ID;
 		String CONCRETE_SESSION_ID = Tables.LOG + "." + LogContract.Log.SESSION_ID;
@@ -136,11 +157,97 @@ import android.provider.BaseColumns;
 				LogContract.Log.SESSION_ID +
 			") REFERENCES " + Tables.LOG_SESSIONS + "(" + LogContract.Session._ID + "));";
 
+	/**
+	 * The SQL code that creates the log index used for session statistics and histograms.
+	 * All columns are in the index, so the aggregations do not touch the log table at all.
+	 */
+	private static final String CREATE_LOG_SESSION_LEVEL_TIME_INDEX = "CREATE INDEX " +
+			Indexes.LOG_SESSION_LEVEL_TIME + " ON " + Tables.LOG +
+			"(" +
+				LogContract.Log.SESSION_ID + ", " +
+				LogContract.Log.LEVEL + ", " +
+				LogContract.Log.TIME +
+			");";
+
+	/**
+	 * The SQL code that creates the session summary table:
+	 *
+	 * <pre>
+	 * ----------------------------------------------------------------------------------------------------------------------------
+	 * |                                                      session_summary                                                     |
+	 * ----------------------------------------------------------------------------------------------------------------------------
+	 * | session_id (int, pk, fk) | entry_count (int) | max_level (int) | last_entry_time (int) | total_bytes (int) |
+	 * ----------------------------------------------------------------------------------------------------------------------------
+	 * </pre>
+	 * The table is maintained by triggers, so it's always updated in the same transaction
+	 * as the log table. Log entries are never deleted other than together with their session,
+	 * so there is no trigger for deleting them.
+	 */
+	private static final String CREATE_SESSION_SUMMARY = "CREATE TABLE " + Tables.SESSION_SUMMARY +
+			"(" +
+				SessionSummaryColumns.SESSION_ID + " INTEGER PRIMARY KEY, " +
+				LogContract.Session.ENTRY_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+				LogContract.Session.MAX_LEVEL + " INTEGER, " +
+				LogContract.Session.LAST_ENTRY_TIME + " INTEGER, " +
+				LogContract.Session.TOTAL_BYTES + " INTEGER NOT NULL DEFAULT 0, FOREIGN KEY(" +
+				SessionSummaryColumns.SESSION_ID +
+			") REFERENCES " + Tables.LOG_SESSIONS + "(" + LogContract.Session._ID + "));";
+
+	private static final String CREATE_SESSION_INSERTED_TRIGGER = "CREATE TRIGGER " +
+			Triggers.SESSION_INSERTED + " AFTER INSERT ON " + Tables.LOG_SESSIONS +
+			" BEGIN " +
+				"INSERT INTO " + Tables.SESSION_SUMMARY + "(" + SessionSummaryColumns.SESSION_ID + ")" +
+				" VALUES (NEW." + LogContract.Session._ID + ");" +
+			" END;";
+
+	private static final String CREATE_SESSION_DELETED_TRIGGER = "CREATE TRIGGER " +
+			Triggers.SESSION_DELETED + " AFTER DELETE ON " + Tables.LOG_SESSIONS +
+			" BEGIN " +
+				"DELETE FROM " + Tables.SESSION_SUMMARY +
+				" WHERE " + SessionSummaryColumns.SESSION_ID + " = OLD." + LogContract.Session._ID + ";" +
+			" END;";
+
+	private static final String CREATE_LOG_INSERTED_TRIGGER = "CREATE TRIGGER " +
+			Triggers.LOG_INSERTED + " AFTER INSERT ON " + Tables.LOG +
+			" BEGIN " +
+				"UPDATE " + Tables.SESSION_SUMMARY + " SET " +
+				LogContract.Session.ENTRY_COUNT + " = " + LogContract.Session.ENTRY_COUNT + " + 1, " +
+				LogContract.Session.MAX_LEVEL + " = MAX(IFNULL(" + LogContract.Session.MAX_LEVEL + ", NEW." + LogContract.Log.LEVEL + "), NEW." + LogContract.Log.LEVEL + "), " +
+				LogContract.Session.LAST_ENTRY_TIME + " = MAX(IFNULL(" + LogContract.Session.LAST_ENTRY_TIME + ", NEW." + LogContract.Log.TIME + "), NEW." + LogContract.Log.TIME + "), " +
+				LogContract.Session.TOTAL_BYTES + " = " + LogContract.Session.TOTAL_BYTES + " + LENGTH(CAST(NEW." + LogContract.Log.DATA + " AS BLOB))" +
+				" WHERE " + SessionSummaryColumns.SESSION_ID + " = NEW." + LogContract.Log.SESSION_ID + ";" +
+			" END;";
+
+	/**
+	 * Fills the session summary table for sessions created before the table existed.
+	 */
+	private static final String POPULATE_SESSION_SUMMARY = "INSERT INTO " + Tables.SESSION_SUMMARY +
+			"(" +
+				SessionSummaryColumns.SESSION_ID + ", " +
+				LogContract.Session.ENTRY_COUNT + ", " +
+				LogContract.Session.MAX_LEVEL + ", " +
+				LogContract.Session.LAST_ENTRY_TIME + ", " +
+				LogContract.Session.TOTAL_BYTES +
+			") SELECT " +
+				SessionColumns.CONCRETE_ID + ", " +
+				"COUNT(" + LogColumns.CONCRETE_ID + "), " +
+				"MAX(" + LogColumns.CONCRETE_LEVEL + "), " +
+				"MAX(" + LogColumns.CONCRETE_TIME + "), " +
+				"IFNULL(SUM(LENGTH(CAST(" + LogColumns.CONCRETE_DATA + " AS BLOB))), 0)" +
+			" FROM " + Tables.LOG_SESSIONS + " LEFT OUTER JOIN " + Tables.LOG +
+			" ON (" + LogColumns.CONCRETE_SESSION_ID + " = " + SessionColumns.CONCRETE_ID + ")" +
+			" GROUP BY " + SessionColumns.CONCRETE_ID + ";";
+
 	@Override
 	public void onCreate(final SQLiteDatabase db) {
 		final List<String> ddls = new ArrayList<>();
 		ddls.add(CREATE_LOG_SESSIONS);
 		ddls.add(CREATE_LOG);
+		ddls.add(CREATE_LOG_SESSION_LEVEL_TIME_INDEX);
+		ddls.add(CREATE_SESSION_SUMMARY);
+		ddls.add(CREATE_SESSION_INSERTED_TRIGGER);
+		ddls.add(CREATE_SESSION_DELETED_TRIGGER);
+		ddls.add(CREATE_LOG_INSERTED_TRIGGER);
 
 		for (String ddl : ddls) {
 			db.execSQL(ddl);
@@ -156,7 +263,16 @@ import android.provider.BaseColumns;
 
 	@Override
 	public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion) {
-		// empty for now
+		if (oldVersion < 2) {
+			db.execSQL(CREATE_LOG_SESSION_LEVEL_TIME_INDEX);
+		}
+		if (oldVersion < 3) {
+			db.execSQL(CREATE_SESSION_SUMMARY);
+			db.execSQL(POPULATE_SESSION_SUMMARY);
+			db.execSQL(CREATE_SESSION_INSERTED_TRIGGER);
+			db.execSQL(CREATE_SESSION_DELETED_TRIGGER);
+			db.execSQL(CREATE_LOG_INSERTED_TRIGGER);
+		}
 	}
 
 }
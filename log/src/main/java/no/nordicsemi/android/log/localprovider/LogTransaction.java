@@ -12,12 +12,15 @@
 package no.nordicsemi.android.log.localprovider;
 
 import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import no.nordicsemi.android.log.metrics.LogTrace;
+
 /**
  * A transaction for interacting with a articles provider. This is used to pass state around
  * throughout the operations comprising the transaction, including which databases the overall
@@ -56,6 +59,16 @@ import java.util.Map;
 	 */
 	private boolean mYieldFailed;
 
+	/**
+	 * The uptime of the last yield attempt, or the time the transaction was started.
+	 */
+	private long mLastYieldTime;
+
+	/**
+	 * Number of directly preceding yield attempts that were contended.
+	 */
+	private int mContendedYields;
+
 	/**
 	 * Creates a new transaction object, optionally marked as a batch transaction.
 	 *
@@ -84,6 +97,31 @@ import java.util.Map;
 		mYieldFailed = true;
 	}
 
+	/**
+	 * Returns the time in milliseconds since the last yield attempt, or since the transaction
+	 * was started.
+	 */
+	long getMillisSinceYield() {
+		return SystemClock.uptimeMillis() - mLastYieldTime;
+	}
+
+	/**
+	 * Returns number of directly preceding yield attempts that were contended.
+	 */
+	int getContendedYields() {
+		return mContendedYields;
+	}
+
+	/**
+	 * Records the yield attempt.
+	 *
+	 * @param yielded whether the lock was contended and the transaction has yielded.
+	 */
+	void onYieldAttempted(boolean yielded) {
+		mLastYieldTime = SystemClock.uptimeMillis();
+		mContendedYields = yielded ? mContendedYields + 1 : 0;
+	}
+
 	/**
 	 * If the given database has not already been enlisted in this transaction, adds it to our list
 	 * of affected databases and starts a transaction on it. If we already have the given database
@@ -98,7 +136,13 @@ import java.util.Map;
 			// the reverse order.
 			mDatabasesForTransaction.add(0, db);
 			mDatabaseTagMap.put(tag, db);
-			db.beginTransaction();
+			LogTrace.begin("LogTransaction.begin");
+			try {
+				db.beginTransaction();
+			} finally {
+				LogTrace.end();
+			}
+			mLastYieldTime = SystemClock.uptimeMillis();
 		}
 	}
 
@@ -153,6 +197,27 @@ import java.util.Map;
 		}
 	}
 
+	/**
+	 * Commits the work done so far in all active DB transactions and starts new ones, so that
+	 * the following operations are executed in a new sub-transaction. Other threads waiting for
+	 * the database lock may acquire it in between.
+	 * <p>
+	 * The transaction stays dirty if it was dirty before.
+	 */
+	void commitAndRestart() {
+		LogTrace.begin("LogTransaction.commit");
+		try {
+			for (SQLiteDatabase db : mDatabasesForTransaction) {
+				db.setTransactionSuccessful();
+				db.endTransaction();
+				db.beginTransaction();
+			}
+		} finally {
+			LogTrace.end();
+		}
+		mLastYieldTime = SystemClock.uptimeMillis();
+	}
+
 	/**
 	 * Completes the transaction, ending the DB transactions for all associated databases.
 	 *
@@ -162,16 +227,21 @@ import java.util.Map;
 	 */
 	void finish(boolean callerIsBatch) {
 		if (!mBatch || callerIsBatch) {
-			for (SQLiteDatabase db : mDatabasesForTransaction) {
-				// If an exception was thrown while yielding, it's possible that we no longer have
-				// a lock on this database, so we need to check before attempting to end its
-				// transaction. Otherwise, we should always expect to be in a transaction (and will
-				// throw an exception if this is not the case).
-				if (mYieldFailed && !db.isDbLockedByCurrentThread()) {
-					// We no longer hold the lock, so don't do anything with this database.
-					continue;
+			LogTrace.begin("LogTransaction.commit");
+			try {
+				for (SQLiteDatabase db : mDatabasesForTransaction) {
+					// If an exception was thrown while yielding, it's possible that we no longer have
+					// a lock on this database, so we need to check before attempting to end its
+					// transaction. Otherwise, we should always expect to be in a transaction (and will
+					// throw an exception if this is not the case).
+					if (mYieldFailed && !db.isDbLockedByCurrentThread()) {
+						// We no longer hold the lock, so don't do anything with this database.
+						continue;
+					}
+					db.endTransaction();
 				}
-				db.endTransaction();
+			} finally {
+				LogTrace.end();
 			}
 			mDatabasesForTransaction.clear();
 			mDatabaseTagMap.clear();
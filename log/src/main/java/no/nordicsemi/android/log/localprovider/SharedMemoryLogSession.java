@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import no.nordicsemi.android.log.ILogSession;
+import no.nordicsemi.android.log.LocalLogSession;
+
+/**
+ * A local log session writing entries through a {@link SharedMemoryLogTransport}.
+ * Use {@link SharedMemoryLogTransport#newSession(String, String)} to create it, and log
+ * using {@link no.nordicsemi.android.log.Logger} as usual.
+ * <p>
+ * If an entry can't be written to the shared memory, e.g. after the transport was closed,
+ * it is inserted into the local provider using a binder call.
+ */
+@SuppressWarnings("unused")
+@RequiresApi(api = Build.VERSION_CODES.O_MR1)
+public class SharedMemoryLogSession implements ILogSession {
+	private final SharedMemoryLogTransport transport;
+	private final LocalLogSession session;
+	private final long sessionId;
+
+	/* package */SharedMemoryLogSession(@NonNull final SharedMemoryLogTransport transport,
+										 @NonNull final LocalLogSession session) {
+		this.transport = transport;
+		this.session = session;
+		this.sessionId = ContentUris.parseId(session.getSessionUri());
+	}
+
+	/**
+	 * Writes the log entry to the shared memory.
+	 *
+	 * @param level   the log level.
+	 * @param message the message.
+	 * @return True, if the entry was written. Otherwise it should be inserted into the
+	 * {@link #getSessionEntriesUri()}.
+	 */
+	public boolean write(final int level, @NonNull final String message) {
+		return write(System.currentTimeMillis(), level, message);
+	}
+
+	/**
+	 * Writes the log entry to the shared memory.
+	 *
+	 * @param time    the entry time.
+	 * @param level   the log level.
+	 * @param message the message.
+	 * @return True, if the entry was written. Otherwise it should be inserted into the
+	 * {@link #getSessionEntriesUri()}.
+	 */
+	public boolean write(final long time, final int level, @NonNull final String message) {
+		return transport.write(sessionId, time, level, message);
+	}
+
+	/**
+	 * Returns the local session the entries are written to.
+	 */
+	@NonNull
+	public LocalLogSession getLocalSession() {
+		return session;
+	}
+
+	@NonNull
+	@Override
+	public Context getContext() {
+		return session.getContext();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionUri() {
+		return session.getSessionUri();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionEntriesUri() {
+		return session.getSessionEntriesUri();
+	}
+
+	@NonNull
+	@Override
+	public Uri getSessionContentUri() {
+		return session.getSessionContentUri();
+	}
+}
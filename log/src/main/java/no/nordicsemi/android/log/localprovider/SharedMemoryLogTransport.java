@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+import no.nordicsemi.android.log.LocalLogSession;
+
+/**
+ * A transport writing log entries to a {@link LocalLogContentProvider} hosted in another process
+ * through a ring buffer in {@link SharedMemory}, instead of making a binder call for each entry.
+ * <p>
+ * Entries are written directly into the shared memory. The provider is notified with a single
+ * binder call (a doorbell) shortly after the first entry is written, or immediately when the ring
+ * gets half full, and inserts all entries written so far in a single transaction. If the ring
+ * is full, the writing thread rings the doorbell and waits until the provider has read the
+ * entries.
+ * <p>
+ * Usage:
+ * <pre>
+ * SharedMemoryLogTransport transport = SharedMemoryLogTransport.open(context, MyLogContentProvider.AUTHORITY_URI);
+ * ILogSession session = transport.newSession("key", "name");
+ * Logger.i(session, "Hello from another process");
+ * ...
+ * transport.close();
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+@RequiresApi(api = Build.VERSION_CODES.O_MR1)
+public final class SharedMemoryLogTransport implements Closeable {
+	private static final String TAG = "SharedMemoryLogTransport";
+
+	/**
+	 * The default ring capacity in bytes.
+	 */
+	public static final int DEFAULT_CAPACITY = 256 * 1024;
+
+	/**
+	 * Time in ms after the first entry is written before the provider is notified.
+	 */
+	private static final int DOORBELL_DELAY = 20;
+
+	private final ContentResolver mContentResolver;
+	private final Context mContext;
+	private final Uri mAuthorityUri;
+	private final int mRingId;
+	private final SharedMemory mMemory;
+	private final ByteBuffer mMapping;
+	private final SharedMemoryRing mRing;
+	private final int mCapacity;
+	/** The token used by the provider to release the ring if this process dies. */
+	private final Binder mClientToken = new Binder();
+
+	private final HandlerThread mHandlerThread;
+	private final Handler mHandler;
+	private final Runnable mDoorbell = this::ringDoorbell;
+
+	private final Object mLock = new Object();
+	/* guarded by mLock */ private long mWritePosition;
+	/* guarded by mLock */ private long mReadPosition;
+	/* guarded by mLock */ private boolean mDoorbellScheduled;
+	/* guarded by mLock */ private boolean mClosed;
+
+	/**
+	 * Opens the transport to the {@link LocalLogContentProvider} with given authority.
+	 *
+	 * @param context      the context.
+	 * @param authorityUri the local provider authority Uri.
+	 * @return The transport, or null if the provider does not support it.
+	 */
+	@Nullable
+	public static SharedMemoryLogTransport open(@NonNull final Context context,
+												@NonNull final Uri authorityUri) {
+		return open(context, authorityUri, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Opens the transport to the {@link LocalLogContentProvider} with given authority.
+	 *
+	 * @param context      the context.
+	 * @param authorityUri the local provider authority Uri.
+	 * @param capacity     the ring capacity in bytes.
+	 * @return The transport, or null if the provider does not support it.
+	 */
+	@Nullable
+	public static SharedMemoryLogTransport open(@NonNull final Context context,
+												@NonNull final Uri authorityUri,
+												final int capacity) {
+		try {
+			final SharedMemoryLogTransport transport =
+					new SharedMemoryLogTransport(context, authorityUri, capacity);
+			if (transport.mRingId < 0)
+				return null;
+			return transport;
+		} catch (final Exception e) {
+			Log.e(TAG, "Error while opening shared memory log transport", e);
+			return null;
+		}
+	}
+
+	private SharedMemoryLogTransport(@NonNull final Context context,
+									 @NonNull final Uri authorityUri,
+									 final int capacity) throws ErrnoException {
+		mContext = context.getApplicationContext();
+		mContentResolver = context.getContentResolver();
+		mAuthorityUri = authorityUri;
+
+		final Bundle extras = new Bundle();
+		extras.putInt(SharedMemoryRing.EXTRA_CAPACITY, SharedMemoryRing.align(capacity));
+		extras.putBinder(SharedMemoryRing.EXTRA_CLIENT, mClientToken);
+		final Bundle result = mContentResolver.call(authorityUri, SharedMemoryRing.METHOD_OPEN, null, extras);
+		if (result == null) {
+			mRingId = -1;
+			mMemory = null;
+			mMapping = null;
+			mRing = null;
+			mCapacity = 0;
+			mHandlerThread = null;
+			mHandler = null;
+			return;
+		}
+		mRingId = result.getInt(SharedMemoryRing.EXTRA_RING_ID);
+		mMemory = result.getParcelable(SharedMemoryRing.EXTRA_MEMORY);
+		mMapping = mMemory.mapReadWrite();
+		mRing = new SharedMemoryRing(mMapping);
+		mCapacity = mMapping.capacity();
+
+		mHandlerThread = new HandlerThread(TAG);
+		mHandlerThread.start();
+		mHandler = new Handler(mHandlerThread.getLooper());
+	}
+
+	/**
+	 * Creates a new log session in the local provider, which logs through this transport.
+	 *
+	 * @param key  the session key.
+	 * @param name the optional session name.
+	 * @return The session, or null if it could not be created.
+	 */
+	@Nullable
+	public SharedMemoryLogSession newSession(@NonNull final String key, @Nullable final String name) {
+		final LocalLogSession session = LocalLogSession.newSession(mContext, mAuthorityUri, key, name);
+		if (session == null)
+			return null;
+		return new SharedMemoryLogSession(this, session);
+	}
+
+	/**
+	 * Returns a session logging through this transport to the given local session.
+	 *
+	 * @param session the session created in the provider this transport is opened to.
+	 * @return The session.
+	 */
+	@NonNull
+	public SharedMemoryLogSession openSession(@NonNull final LocalLogSession session) {
+		return new SharedMemoryLogSession(this, session);
+	}
+
+	/**
+	 * Writes the log entry to the ring.
+	 *
+	 * @return True, if the entry was written. False if the transport is closed, the provider
+	 * failed, or the entry is too big. The entries written before are flushed in that case,
+	 * so that the entry may be inserted in order using a binder call.
+	 */
+	boolean write(final long sessionId, final long time, final int level, @NonNull final String message) {
+		final byte[] data = SharedMemoryRing.encode(message);
+		// The doorbell is rung without holding the lock, so that other threads are not blocked
+		// by the binder call.
+		while (true) {
+			final long readPosition;
+			synchronized (mLock) {
+				if (mClosed)
+					return false;
+				if (data.length <= mRing.getMaxDataSize()) {
+					final long position = mRing.write(mWritePosition, mReadPosition, sessionId, time, level, data);
+					if (position >= 0) {
+						mWritePosition = position;
+						scheduleDoorbell();
+						return true;
+					}
+				}
+				readPosition = mReadPosition;
+			}
+
+			// The entry is too big, or the ring is full. Wait until the provider reads it.
+			ringDoorbell();
+			if (data.length > mRing.getMaxDataSize())
+				return false;
+			synchronized (mLock) {
+				if (mReadPosition == readPosition)
+					return false;
+			}
+		}
+	}
+
+	/* guarded by mLock */
+	private void scheduleDoorbell() {
+		if (mWritePosition - mReadPosition > mCapacity / 2) {
+			mHandler.removeCallbacks(mDoorbell);
+			mHandler.post(mDoorbell);
+			mDoorbellScheduled = true;
+		} else if (!mDoorbellScheduled) {
+			mHandler.postDelayed(mDoorbell, DOORBELL_DELAY);
+			mDoorbellScheduled = true;
+		}
+	}
+
+	/**
+	 * Notifies the provider about all entries written so far and waits until they are inserted.
+	 */
+	public void flush() {
+		ringDoorbell();
+	}
+
+	/**
+	 * Flushes the entries written so far and releases the shared memory.
+	 * Sessions using this transport fall back to binder calls afterwards.
+	 */
+	@Override
+	public void close() {
+		final long writePosition;
+		synchronized (mLock) {
+			if (mClosed)
+				return;
+			mClosed = true;
+			writePosition = mWritePosition;
+		}
+		drain(writePosition);
+		mHandlerThread.quit();
+		try {
+			final Bundle extras = new Bundle();
+			extras.putInt(SharedMemoryRing.EXTRA_RING_ID, mRingId);
+			mContentResolver.call(mAuthorityUri, SharedMemoryRing.METHOD_CLOSE, null, extras);
+		} catch (final Exception e) {
+			Log.w(TAG, "Error while closing shared memory log transport", e);
+		}
+		SharedMemory.unmap(mMapping);
+		mMemory.close();
+	}
+
+	/**
+	 * Notifies the provider about entries written up to the current write position and updates
+	 * the read position. The provider reads only the entries before that position, so other
+	 * threads may keep writing during the binder call. Must not be called holding the lock.
+	 */
+	private void ringDoorbell() {
+		final long writePosition;
+		synchronized (mLock) {
+			mDoorbellScheduled = false;
+			if (mClosed || mWritePosition == mReadPosition)
+				return;
+			writePosition = mWritePosition;
+		}
+		drain(writePosition);
+	}
+
+	/**
+	 * Asks the provider to read the entries up to the given position and updates the read position.
+	 */
+	private void drain(final long writePosition) {
+		final Bundle extras = new Bundle();
+		extras.putInt(SharedMemoryRing.EXTRA_RING_ID, mRingId);
+		extras.putLong(SharedMemoryRing.EXTRA_POSITION, writePosition);
+		try {
+			final Bundle result = mContentResolver.call(mAuthorityUri,
+					SharedMemoryRing.METHOD_DRAIN, null, extras);
+			if (result != null) {
+				synchronized (mLock) {
+					mReadPosition = Math.max(mReadPosition,
+							result.getLong(SharedMemoryRing.EXTRA_POSITION));
+				}
+			}
+		} catch (final Exception e) {
+			Log.e(TAG, "Error while draining shared memory log ring", e);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+import no.nordicsemi.android.log.core.RecordRing;
+
+/**
+ * A ring buffer of log entries in shared memory, written by {@link SharedMemoryLogTransport}
+ * in the logging process and read by {@link LocalLogContentProvider} in the provider process.
+ * See {@link RecordRing} for the record format.
+ * <p>
+ * Read and write positions are exchanged using binder calls, which also guarantee that the data
+ * written before the call is visible to the other process.
+ */
+/* package */final class SharedMemoryRing extends RecordRing {
+	/** Opens a ring. Returns {@link #EXTRA_RING_ID} and {@link #EXTRA_MEMORY}. */
+	static final String METHOD_OPEN = "ring_open";
+	/** Reads the ring up to {@link #EXTRA_POSITION}. Returns the new read position. */
+	static final String METHOD_DRAIN = "ring_drain";
+	/** Closes the ring with {@link #EXTRA_RING_ID}. */
+	static final String METHOD_CLOSE = "ring_close";
+
+	static final String EXTRA_RING_ID = "ring_id";
+	static final String EXTRA_CAPACITY = "capacity";
+	static final String EXTRA_MEMORY = "memory";
+	static final String EXTRA_POSITION = "position";
+	static final String EXTRA_CLIENT = "client";
+
+	/**
+	 * Creates the ring on the memory mapping. The mapping is used from a single thread at a time.
+	 *
+	 * @param buffer the mapped shared memory. The capacity must be a multiple of 4.
+	 */
+	SharedMemoryRing(@NonNull final ByteBuffer buffer) {
+		super(buffer);
+	}
+}
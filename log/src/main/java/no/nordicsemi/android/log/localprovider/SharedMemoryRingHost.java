@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the shared memory rings opened by {@link SharedMemoryLogTransport} clients and reads
+ * them when a client rings the doorbell. The class is used by {@link LocalLogContentProvider}
+ * only on API 27+, where {@link SharedMemory} is available.
+ */
+@RequiresApi(api = Build.VERSION_CODES.O_MR1)
+/* package */final class SharedMemoryRingHost {
+	private static final String TAG = "SharedMemoryRingHost";
+
+	/**
+	 * Maximum capacity of a ring, in bytes.
+	 */
+	private static final int MAX_CAPACITY = 4 * 1024 * 1024;
+	/**
+	 * Maximum number of rings opened by a single app (UID) at a time.
+	 */
+	private static final int MAX_RINGS_PER_UID = 4;
+
+	interface Reader {
+		/**
+		 * Reads and stores the records between the given positions.
+		 *
+		 * @return The new read position.
+		 */
+		long read(@NonNull SharedMemoryRing ring, long readPosition, long writePosition);
+	}
+
+	private static final class Ring {
+		private final SharedMemory memory;
+		private final ByteBuffer mapping;
+		private final SharedMemoryRing ring;
+		private final int uid;
+		private long readPosition;
+		private boolean closed;
+
+		private Ring(@NonNull final SharedMemory memory, final int uid) throws ErrnoException {
+			this.memory = memory;
+			this.uid = uid;
+			this.mapping = memory.mapReadOnly();
+			this.ring = new SharedMemoryRing(mapping);
+		}
+	}
+
+	private final Reader mReader;
+	/* guarded by mRings */ private final Map<Integer, Ring> mRings = new HashMap<>();
+	/* guarded by mRings */ private int mNextRingId;
+
+	SharedMemoryRingHost(@NonNull final Reader reader) {
+		mReader = reader;
+	}
+
+	/**
+	 * Handles the ring method call.
+	 *
+	 * @return The result, or null if the method is not a ring method.
+	 */
+	@Nullable
+	Bundle call(@NonNull final String method, @NonNull final Bundle extras) {
+		switch (method) {
+			case SharedMemoryRing.METHOD_OPEN:
+				return open(extras.getInt(SharedMemoryRing.EXTRA_CAPACITY),
+						extras.getBinder(SharedMemoryRing.EXTRA_CLIENT));
+			case SharedMemoryRing.METHOD_DRAIN:
+				return drain(extras.getInt(SharedMemoryRing.EXTRA_RING_ID),
+						extras.getLong(SharedMemoryRing.EXTRA_POSITION));
+			case SharedMemoryRing.METHOD_CLOSE:
+				close(extras.getInt(SharedMemoryRing.EXTRA_RING_ID));
+				return Bundle.EMPTY;
+			default:
+				return null;
+		}
+	}
+
+	@NonNull
+	private Bundle open(final int capacity, @Nullable final IBinder client) {
+		if (capacity <= SharedMemoryRing.HEADER_SIZE || capacity > MAX_CAPACITY
+				|| capacity != SharedMemoryRing.align(capacity))
+			throw new IllegalArgumentException("Invalid ring capacity: " + capacity);
+
+		final int uid = Binder.getCallingUid();
+		final Ring ring;
+		try {
+			ring = new Ring(SharedMemory.create("nrf-logger-ring", capacity), uid);
+		} catch (final ErrnoException e) {
+			throw new IllegalStateException("Creating shared memory failed", e);
+		}
+		final int id;
+		synchronized (mRings) {
+			int count = 0;
+			for (final Ring r : mRings.values())
+				if (r.uid == uid)
+					count++;
+			if (count >= MAX_RINGS_PER_UID) {
+				SharedMemory.unmap(ring.mapping);
+				ring.memory.close();
+				throw new IllegalStateException("Too many log rings opened by UID " + uid);
+			}
+			id = mNextRingId++;
+			mRings.put(id, ring);
+		}
+		if (client != null) {
+			try {
+				// Release the ring when the logging process dies without closing it.
+				client.linkToDeath(() -> close(id), 0);
+			} catch (final RemoteException e) {
+				close(id);
+				throw new IllegalStateException("Client died");
+			}
+		}
+
+		final Bundle result = new Bundle();
+		result.putInt(SharedMemoryRing.EXTRA_RING_ID, id);
+		result.putParcelable(SharedMemoryRing.EXTRA_MEMORY, ring.memory);
+		return result;
+	}
+
+	@NonNull
+	private Bundle drain(final int id, final long writePosition) {
+		final Ring ring;
+		synchronized (mRings) {
+			ring = mRings.get(id);
+		}
+		if (ring == null)
+			throw new IllegalArgumentException("Unknown ring: " + id);
+
+		final Bundle result = new Bundle();
+		synchronized (ring) {
+			if (!ring.closed && writePosition > ring.readPosition) {
+				ring.readPosition = mReader.read(ring.ring, ring.readPosition, writePosition);
+			}
+			result.putLong(SharedMemoryRing.EXTRA_POSITION, ring.readPosition);
+		}
+		return result;
+	}
+
+	private void close(final int id) {
+		final Ring ring;
+		synchronized (mRings) {
+			ring = mRings.remove(id);
+		}
+		if (ring == null)
+			return;
+
+		synchronized (ring) {
+			ring.closed = true;
+			SharedMemory.unmap(ring.mapping);
+			ring.memory.close();
+		}
+		Log.d(TAG, "Log ring " + id + " closed");
+	}
+}
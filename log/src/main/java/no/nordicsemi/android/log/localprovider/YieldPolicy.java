@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The policy deciding when a long write operation, like
+ * {@link LocalLogContentProvider#bulkInsert(android.net.Uri, android.content.ContentValues[])},
+ * should yield the database lock to other threads, and how long it should sleep afterwards.
+ * <p>
+ * A yield is attempted after given number of operations, or when the lock has been held for
+ * given time, whatever comes first. The yield happens only if another thread is waiting for
+ * the lock. The writer then sleeps for a time that adapts to the contention: the first yield
+ * sleeps for the minimum time, and each following yield that was also contended doubles it,
+ * up to the maximum. A yield attempt without contention resets the sleep time to the minimum.
+ * <p>
+ * Use {@link LocalLogContentProvider#setYieldPolicy(YieldPolicy)} to change the policy.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class YieldPolicy {
+	/**
+	 * The default policy. A yield is attempted every 50 operations or 100 ms, and the writer
+	 * sleeps for up to 50 ms when readers keep waiting for the lock.
+	 */
+	public static final YieldPolicy DEFAULT = new Builder().build();
+
+	public static class Builder {
+		private int mOperationsPerYieldPoint = 50;
+		private long mMaxLockHoldMillis = 100;
+		private long mMinSleepAfterYieldMillis = 0;
+		private long mMaxSleepAfterYieldMillis = 50;
+
+		/**
+		 * Sets the number of operations after which a yield is attempted.
+		 *
+		 * @param operations the number of operations, at least 1.
+		 * @return The builder.
+		 */
+		public Builder setOperationsPerYieldPoint(final int operations) {
+			if (operations < 1)
+				throw new IllegalArgumentException("Operations per yield point must be positive");
+			mOperationsPerYieldPoint = operations;
+			return this;
+		}
+
+		/**
+		 * Sets the time in milliseconds after which a yield is attempted, regardless of the
+		 * number of operations executed.
+		 *
+		 * @param millis the maximum time to hold the lock without yielding.
+		 * @return The builder.
+		 */
+		public Builder setMaxLockHoldMillis(final long millis) {
+			if (millis < 0)
+				throw new IllegalArgumentException("Lock hold time must not be negative");
+			mMaxLockHoldMillis = millis;
+			return this;
+		}
+
+		/**
+		 * Sets the range of time to sleep after a successful yield.
+		 *
+		 * @param minMillis the time to sleep after the first yield.
+		 * @param maxMillis the maximum time to sleep when the lock is contended repeatedly.
+		 * @return The builder.
+		 */
+		public Builder setSleepAfterYieldMillis(final long minMillis, final long maxMillis) {
+			if (minMillis < 0 || maxMillis < minMillis)
+				throw new IllegalArgumentException("Invalid sleep range: " + minMillis + "-" + maxMillis);
+			mMinSleepAfterYieldMillis = minMillis;
+			mMaxSleepAfterYieldMillis = maxMillis;
+			return this;
+		}
+
+		@NonNull
+		public YieldPolicy build() {
+			return new YieldPolicy(this);
+		}
+	}
+
+	private final int mOperationsPerYieldPoint;
+	private final long mMaxLockHoldMillis;
+	private final long mMinSleepAfterYieldMillis;
+	private final long mMaxSleepAfterYieldMillis;
+
+	private YieldPolicy(@NonNull final Builder builder) {
+		mOperationsPerYieldPoint = builder.mOperationsPerYieldPoint;
+		mMaxLockHoldMillis = builder.mMaxLockHoldMillis;
+		mMinSleepAfterYieldMillis = builder.mMinSleepAfterYieldMillis;
+		mMaxSleepAfterYieldMillis = builder.mMaxSleepAfterYieldMillis;
+	}
+
+	public int getOperationsPerYieldPoint() {
+		return mOperationsPerYieldPoint;
+	}
+
+	public long getMaxLockHoldMillis() {
+		return mMaxLockHoldMillis;
+	}
+
+	/**
+	 * Returns whether a yield should be attempted.
+	 *
+	 * @param operations     number of operations executed since the last yield attempt.
+	 * @param lockHeldMillis time since the last yield attempt, in milliseconds.
+	 * @return True, if the writer should try to yield the lock.
+	 */
+	boolean shouldYield(final int operations, final long lockHeldMillis) {
+		return operations >= mOperationsPerYieldPoint || lockHeldMillis >= mMaxLockHoldMillis;
+	}
+
+	/**
+	 * Returns the time to sleep if the next yield succeeds.
+	 *
+	 * @param contendedYields number of directly preceding yield attempts that were contended.
+	 * @return The time to sleep in milliseconds.
+	 */
+	long getSleepAfterYieldMillis(final int contendedYields) {
+		if (contendedYields == 0 || mMaxSleepAfterYieldMillis == 0)
+			return mMinSleepAfterYieldMillis;
+		long sleep = Math.max(1, mMinSleepAfterYieldMillis);
+		for (int i = 0; i < contendedYields && sleep < mMaxSleepAfterYieldMillis; ++i) {
+			sleep <<= 1;
+		}
+		return Math.min(mMaxSleepAfterYieldMillis, sleep);
+	}
+}
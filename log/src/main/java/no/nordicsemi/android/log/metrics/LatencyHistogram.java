@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets, similar to HdrHistogram.
+ * <p>
+ * Each power of 2 is divided into 8 linear sub-buckets, so a recorded value is known with
+ * a precision of 12.5%, for any value from 1 ns to hundreds of years.
+ * Recording a value is a few arithmetic operations and one atomic increment.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/* package */ static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+	private final StripedCounter mTotal = new StripedCounter();
+	private final AtomicLong mMax = new AtomicLong();
+
+	/* package */LatencyHistogram() {
+	}
+
+	/**
+	 * Records the latency.
+	 *
+	 * @param nanos the latency in nanoseconds.
+	 */
+	/* package */void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		mCounts.incrementAndGet(index(value));
+		mTotal.add(value);
+		long max = mMax.get();
+		while (value > max && !mMax.compareAndSet(max, value))
+			max = mMax.get();
+	}
+
+	/* package */void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			mCounts.set(i, 0);
+		mTotal.reset();
+		mMax.set(0);
+	}
+
+	@NonNull
+	/* package */Snapshot snapshot() {
+		final long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; ++i)
+			counts[i] = mCounts.get(i);
+		return new Snapshot(counts, mTotal.sum(), mMax.get());
+	}
+
+	/* package */static int index(final long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the highest value counted in the bucket with given index.
+	 */
+	/* package */static long highestValue(final int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * A copy of the histogram taken at some point in time.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+
+		private Snapshot(@NonNull final long[] counts, final long total, final long max) {
+			long count = 0;
+			for (final long c : counts)
+				count += c;
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * Returns the number of recorded values.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the mean latency in nanoseconds, or 0 if nothing was recorded.
+		 */
+		public long getMean() {
+			return count > 0 ? total / count : 0;
+		}
+
+		/**
+		 * Returns the highest recorded latency in nanoseconds.
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Returns the latency, in nanoseconds, below which the given percentage of values
+		 * were recorded. The result is the upper bound of the bucket, at most {@link #getMax()}.
+		 *
+		 * @param percentile the percentile, from 0 to 100.
+		 */
+		public long getValueAtPercentile(final double percentile) {
+			if (count == 0)
+				return 0;
+			final double p = Math.min(100.0, Math.max(0.0, percentile));
+			final long threshold = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+			long sum = 0;
+			for (int i = 0; i < counts.length; ++i) {
+				sum += counts[i];
+				if (sum >= threshold)
+					return Math.min(highestValue(i), max);
+			}
+			return max;
+		}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return "count=" + count + ", mean=" + getMean() + "ns, p50=" + getValueAtPercentile(50)
+					+ "ns, p99=" + getValueAtPercentile(99) + "ns, max=" + max + "ns";
+		}
+	}
+}
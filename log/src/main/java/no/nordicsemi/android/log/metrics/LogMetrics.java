@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.metrics;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.annotation.LogLevel;
+
+/**
+ * Metrics of the logging library: number of log entries accepted, filtered and dropped per
+ * level, bytes written, number of calls to content providers, and latency of the provider
+ * operations measured in {@link no.nordicsemi.android.log.Logger} (client side) and in
+ * {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider} (provider side).
+ * <p>
+ * Recording is lock-free and cheap, so the metrics are enabled by default, also in release builds.
+ * Use {@link #snapshot()} to read them:
+ * <pre>
+ * LogMetrics.Snapshot snapshot = LogMetrics.getInstance().snapshot();
+ * Log.i(TAG, "Insert latency: " + snapshot.getLoggerLatency(LogMetrics.OP_INSERT));
+ * </pre>
+ * <p>
+ * The entry counters have the following meaning:
+ * <ul>
+ * <li>accepted - entries written to a session, either with a provider call or to shared memory,</li>
+ * <li>filtered - entries discarded because of their level, e.g. by
+ * {@link no.nordicsemi.android.log.FlightRecorderLogSession},</li>
+ * <li>dropped - entries lost because the provider call failed, e.g. nRF Logger is not installed.</li>
+ * </ul>
+ * Bytes written are estimated as the length of the entry data.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class LogMetrics {
+	/** The insert operation. */
+	public static final int OP_INSERT = 0;
+	/** The bulk insert operation, including the bulk insert sent with call(). */
+	public static final int OP_BULK_INSERT = 1;
+	/** The apply batch operation. */
+	public static final int OP_APPLY_BATCH = 2;
+	private static final int OP_COUNT = 3;
+
+	@Retention(RetentionPolicy.SOURCE)
+	@IntDef(value = {OP_INSERT, OP_BULK_INSERT, OP_APPLY_BATCH})
+	public @interface Operation {
+	}
+
+	/** Number of level counters: DEBUG, VERBOSE, INFO, APPLICATION, WARNING and ERROR. */
+	private static final int LEVEL_COUNT = 6;
+
+	private static final LogMetrics INSTANCE = new LogMetrics();
+
+	private volatile boolean mEnabled = true;
+	private final StripedCounter[] mAccepted = counters(LEVEL_COUNT);
+	private final StripedCounter[] mFiltered = counters(LEVEL_COUNT);
+	private final StripedCounter[] mDropped = counters(LEVEL_COUNT);
+	private final StripedCounter mBytesWritten = new StripedCounter();
+	private final StripedCounter mIpcCalls = new StripedCounter();
+	private final AtomicLong mQueueDepth = new AtomicLong();
+	private final AtomicLong mMaxQueueDepth = new AtomicLong();
+	private final LatencyHistogram[] mLoggerLatency = histograms(OP_COUNT);
+	private final LatencyHistogram[] mProviderLatency = histograms(OP_COUNT);
+
+	/**
+	 * Returns the metrics of the logging library.
+	 */
+	@NonNull
+	public static LogMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	private LogMetrics() {
+	}
+
+	/**
+	 * Enables or disables recording. Metrics are enabled by default.
+	 *
+	 * @param enabled true to record metrics.
+	 */
+	public void setEnabled(final boolean enabled) {
+		mEnabled = enabled;
+	}
+
+	/**
+	 * Returns whether metrics are being recorded.
+	 */
+	public boolean isEnabled() {
+		return mEnabled;
+	}
+
+	/**
+	 * Returns a copy of the current metrics.
+	 */
+	@NonNull
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Clears all metrics. Values recorded concurrently with the reset may be lost or kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < LEVEL_COUNT; ++i) {
+			mAccepted[i].reset();
+			mFiltered[i].reset();
+			mDropped[i].reset();
+		}
+		mBytesWritten.reset();
+		mIpcCalls.reset();
+		mMaxQueueDepth.set(mQueueDepth.get());
+		for (int i = 0; i < OP_COUNT; ++i) {
+			mLoggerLatency[i].reset();
+			mProviderLatency[i].reset();
+		}
+	}
+
+	// Recording
+
+	/**
+	 * Records a log entry written to a session.
+	 *
+	 * @param level  the entry level.
+	 * @param length the length of the entry data.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onAccepted(final int level, final int length) {
+		if (!mEnabled)
+			return;
+		mAccepted[levelIndex(level)].increment();
+		mBytesWritten.add(length);
+	}
+
+	/**
+	 * Records a log entry discarded because of its level.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onFiltered(final int level) {
+		if (mEnabled)
+			mFiltered[levelIndex(level)].increment();
+	}
+
+	/**
+	 * Records a log entry lost because of an error.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onDropped(final int level) {
+		if (mEnabled)
+			mDropped[levelIndex(level)].increment();
+	}
+
+	/**
+	 * Records the current number of entries waiting to be written.
+	 *
+	 * @param delta the change of the queue depth.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onQueueDepthChanged(final int delta) {
+		final long depth = mQueueDepth.addAndGet(delta);
+		if (!mEnabled)
+			return;
+		long max = mMaxQueueDepth.get();
+		while (depth > max && !mMaxQueueDepth.compareAndSet(max, depth))
+			max = mMaxQueueDepth.get();
+	}
+
+	/**
+	 * Returns the start time of an operation, to be passed to {@link #onProviderCall(int, long)}.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public long startTime() {
+		return mEnabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records a content provider call made by {@link no.nordicsemi.android.log.Logger}.
+	 *
+	 * @param operation     the operation.
+	 * @param durationNanos the duration of the call in nanoseconds.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onLoggerCall(@Operation final int operation, final long durationNanos) {
+		if (!mEnabled)
+			return;
+		mIpcCalls.increment();
+		mLoggerLatency[operation].record(durationNanos);
+	}
+
+	/**
+	 * Records an operation handled by the local log content provider.
+	 *
+	 * @param operation the operation.
+	 * @param startTime the value returned by {@link #startTime()} when the call started.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onProviderCall(@Operation final int operation, final long startTime) {
+		if (!mEnabled || startTime == 0)
+			return;
+		mProviderLatency[operation].record(System.nanoTime() - startTime);
+	}
+
+	private static int levelIndex(final int level) {
+		if (level >= LogContract.Log.Level.ERROR)
+			return 5;
+		if (level >= LogContract.Log.Level.WARNING)
+			return 4;
+		if (level >= LogContract.Log.Level.APPLICATION)
+			return 3;
+		if (level >= LogContract.Log.Level.INFO)
+			return 2;
+		if (level >= LogContract.Log.Level.VERBOSE)
+			return 1;
+		return 0;
+	}
+
+	@NonNull
+	private static StripedCounter[] counters(final int count) {
+		final StripedCounter[] counters = new StripedCounter[count];
+		for (int i = 0; i < count; ++i)
+			counters[i] = new StripedCounter();
+		return counters;
+	}
+
+	@NonNull
+	private static LatencyHistogram[] histograms(final int count) {
+		final LatencyHistogram[] histograms = new LatencyHistogram[count];
+		for (int i = 0; i < count; ++i)
+			histograms[i] = new LatencyHistogram();
+		return histograms;
+	}
+
+	/**
+	 * A copy of the logging metrics taken at some point in time.
+	 */
+	public static final class Snapshot {
+		private final long[] accepted = new long[LEVEL_COUNT];
+		private final long[] filtered = new long[LEVEL_COUNT];
+		private final long[] dropped = new long[LEVEL_COUNT];
+		private final long bytesWritten;
+		private final long ipcCalls;
+		private final long queueDepth;
+		private final long maxQueueDepth;
+		private final LatencyHistogram.Snapshot[] loggerLatency = new LatencyHistogram.Snapshot[OP_COUNT];
+		private final LatencyHistogram.Snapshot[] providerLatency = new LatencyHistogram.Snapshot[OP_COUNT];
+
+		private Snapshot(@NonNull final LogMetrics metrics) {
+			for (int i = 0; i < LEVEL_COUNT; ++i) {
+				accepted[i] = metrics.mAccepted[i].sum();
+				filtered[i] = metrics.mFiltered[i].sum();
+				dropped[i] = metrics.mDropped[i].sum();
+			}
+			bytesWritten = metrics.mBytesWritten.sum();
+			ipcCalls = metrics.mIpcCalls.sum();
+			queueDepth = metrics.mQueueDepth.get();
+			maxQueueDepth = metrics.mMaxQueueDepth.get();
+			for (int i = 0; i < OP_COUNT; ++i) {
+				loggerLatency[i] = metrics.mLoggerLatency[i].snapshot();
+				providerLatency[i] = metrics.mProviderLatency[i].snapshot();
+			}
+		}
+
+		/**
+		 * Returns the number of entries with given level written to sessions.
+		 */
+		public long getAccepted(@LogLevel final int level) {
+			return accepted[levelIndex(level)];
+		}
+
+		/**
+		 * Returns the number of entries with given level discarded because of their level.
+		 */
+		public long getFiltered(@LogLevel final int level) {
+			return filtered[levelIndex(level)];
+		}
+
+		/**
+		 * Returns the number of entries with given level lost because of an error.
+		 */
+		public long getDropped(@LogLevel final int level) {
+			return dropped[levelIndex(level)];
+		}
+
+		/**
+		 * Returns the number of entries of all levels written to sessions.
+		 */
+		public long getTotalAccepted() {
+			return sum(accepted);
+		}
+
+		/**
+		 * Returns the number of entries of all levels discarded because of their level.
+		 */
+		public long getTotalFiltered() {
+			return sum(filtered);
+		}
+
+		/**
+		 * Returns the number of entries of all levels lost because of an error.
+		 */
+		public long getTotalDropped() {
+			return sum(dropped);
+		}
+
+		/**
+		 * Returns the estimated number of bytes written.
+		 */
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		/**
+		 * Returns the number of content provider calls made by the Logger.
+		 */
+		public long getIpcCalls() {
+			return ipcCalls;
+		}
+
+		/**
+		 * Returns the number of entries waiting to be written to the local database.
+		 */
+		public long getQueueDepth() {
+			return queueDepth;
+		}
+
+		/**
+		 * Returns the highest number of entries waiting to be written since the last reset.
+		 */
+		public long getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		/**
+		 * Returns the latency of the given operation measured by the Logger, including the IPC.
+		 */
+		@NonNull
+		public LatencyHistogram.Snapshot getLoggerLatency(@Operation final int operation) {
+			return loggerLatency[operation];
+		}
+
+		/**
+		 * Returns the latency of the given operation handled by the local log content provider.
+		 */
+		@NonNull
+		public LatencyHistogram.Snapshot getProviderLatency(@Operation final int operation) {
+			return providerLatency[operation];
+		}
+
+		private static long sum(@NonNull final long[] values) {
+			long sum = 0;
+			for (final long value : values)
+				sum += value;
+			return sum;
+		}
+	}
+}
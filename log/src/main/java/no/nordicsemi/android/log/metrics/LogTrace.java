@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.metrics;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import no.nordicsemi.android.log.BuildConfig;
+
+/**
+ * Trace sections and counters visible in Perfetto and systrace, around the Logger and the
+ * local log content provider hot paths.
+ * <p>
+ * Tracing is disabled by default. Build the library with <code>-PnrfLoggerTrace=true</code>
+ * to enable it. When disabled, {@link #ENABLED} is a compile-time constant <code>false</code>
+ * and the calls are removed by R8.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public final class LogTrace {
+	public static final boolean ENABLED = BuildConfig.TRACE_ENABLED;
+
+	private LogTrace() {
+	}
+
+	/**
+	 * Begins a trace section. Must be followed by {@link #end()} on the same thread.
+	 *
+	 * @param sectionName the section name, a constant.
+	 */
+	public static void begin(@NonNull final String sectionName) {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(sectionName);
+		}
+	}
+
+	/**
+	 * Ends the last trace section started on this thread.
+	 */
+	public static void end() {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+	}
+
+	/**
+	 * Sets the trace counter value. Counters are available on Android 10+.
+	 *
+	 * @param counterName the counter name, a constant.
+	 * @param value       the counter value.
+	 */
+	public static void counter(@NonNull final String counterName, final long value) {
+		if (ENABLED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.setCounter(counterName, value);
+		}
+	}
+}
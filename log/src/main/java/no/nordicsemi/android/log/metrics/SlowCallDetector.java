@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.metrics;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import no.nordicsemi.android.log.ILogSession;
+import no.nordicsemi.android.log.LogContract;
+
+/**
+ * Reports content provider calls made by {@link no.nordicsemi.android.log.Logger} which took
+ * longer than a threshold, together with the stack trace of the caller.
+ * <p>
+ * The detector is disabled unless set using
+ * {@link no.nordicsemi.android.log.Logger#setSlowCallDetector(SlowCallDetector)}.
+ * Reports are rate-limited: at most one slow call is reported in the minimum report interval,
+ * and only for reported calls the caller stack is captured. The number of slow calls suppressed
+ * since the previous report is given in {@link SlowCall#getSuppressedCount()}.
+ * <p>
+ * The listener is called on the thread which made the call, just after it returned.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class SlowCallDetector {
+	/** The default minimum time between two reports, in milliseconds. */
+	public static final long DEFAULT_MIN_REPORT_INTERVAL = 1000;
+
+	public interface Listener {
+		/**
+		 * Called when a provider call took longer than the threshold.
+		 *
+		 * @param call the slow call.
+		 */
+		void onSlowCall(@NonNull SlowCall call);
+	}
+
+	/**
+	 * Information about a slow provider call.
+	 */
+	public static final class SlowCall {
+		private final int operation;
+		private final long durationNanos;
+		private final int batchSize;
+		private final long suppressedCount;
+		private final ILogSession session;
+		private final String threadName;
+		private final StackTraceElement[] callerStack;
+		private String sessionKey;
+
+		private SlowCall(final int operation, final long durationNanos, final int batchSize,
+						 final long suppressedCount, @Nullable final ILogSession session,
+						 @Nullable final String sessionKey,
+						 @NonNull final StackTraceElement[] callerStack) {
+			this.operation = operation;
+			this.durationNanos = durationNanos;
+			this.batchSize = batchSize;
+			this.suppressedCount = suppressedCount;
+			this.session = session;
+			this.sessionKey = sessionKey;
+			this.threadName = Thread.currentThread().getName();
+			this.callerStack = callerStack;
+		}
+
+		/**
+		 * Returns the operation, one of {@link LogMetrics#OP_INSERT},
+		 * {@link LogMetrics#OP_BULK_INSERT} or {@link LogMetrics#OP_APPLY_BATCH}.
+		 */
+		@LogMetrics.Operation
+		public int getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Returns the duration of the call in nanoseconds.
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * Returns the number of log entries or operations sent in the call.
+		 */
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		/**
+		 * Returns the number of slow calls not reported since the previous report
+		 * because of rate limiting.
+		 */
+		public long getSuppressedCount() {
+			return suppressedCount;
+		}
+
+		/**
+		 * Returns the session, or null if the call created a new session.
+		 */
+		@Nullable
+		public ILogSession getSession() {
+			return session;
+		}
+
+		/**
+		 * Returns the session key. If the key is not known, the method reads it from the
+		 * content provider, so it should not be called from the main thread.
+		 *
+		 * @return The session key, or null if it could not be obtained.
+		 */
+		@Nullable
+		public synchronized String getSessionKey() {
+			if (sessionKey == null && session != null) {
+				sessionKey = readSessionKey(session);
+			}
+			return sessionKey;
+		}
+
+		/**
+		 * Returns the name of the thread which made the call.
+		 */
+		@NonNull
+		public String getThreadName() {
+			return threadName;
+		}
+
+		/**
+		 * Returns the stack of the caller, starting from the first frame outside of the
+		 * logger library.
+		 */
+		@NonNull
+		public StackTraceElement[] getCallerStack() {
+			return callerStack;
+		}
+
+		@Nullable
+		private static String readSessionKey(@NonNull final ILogSession session) {
+			try {
+				final Cursor cursor = session.getContext().getContentResolver().query(
+						session.getSessionUri(), new String[]{LogContract.Session.KEY}, null, null, null);
+				if (cursor == null)
+					return null;
+				try {
+					return cursor.moveToNext() ? cursor.getString(0) : null;
+				} finally {
+					cursor.close();
+				}
+			} catch (final Exception e) {
+				return null;
+			}
+		}
+	}
+
+	/** Packages of the logger library, skipped when looking for the caller. */
+	private static final String[] LIBRARY_PACKAGES = {
+			"no.nordicsemi.android.log",
+			"no.nordicsemi.android.log.core",
+			"no.nordicsemi.android.log.localprovider",
+			"no.nordicsemi.android.log.metrics",
+			"no.nordicsemi.android.log.timber",
+			"timber.log"
+	};
+
+	private final Listener mListener;
+	private final long mThresholdNanos;
+	private final long mMinReportIntervalNanos;
+	private final AtomicLong mNextReportTime = new AtomicLong(Long.MIN_VALUE);
+	private final AtomicLong mSuppressed = new AtomicLong();
+
+	/**
+	 * Creates a slow call detector reporting at most one call per
+	 * {@link #DEFAULT_MIN_REPORT_INTERVAL} milliseconds.
+	 *
+	 * @param listener        the listener.
+	 * @param thresholdMillis calls taking longer than this will be reported, in milliseconds.
+	 */
+	public SlowCallDetector(@NonNull final Listener listener, final long thresholdMillis) {
+		this(listener, thresholdMillis, DEFAULT_MIN_REPORT_INTERVAL);
+	}
+
+	/**
+	 * Creates a slow call detector.
+	 *
+	 * @param listener                the listener.
+	 * @param thresholdMillis         calls taking longer than this will be reported, in milliseconds.
+	 * @param minReportIntervalMillis the minimum time between two reports, in milliseconds.
+	 */
+	public SlowCallDetector(@NonNull final Listener listener, final long thresholdMillis,
+							final long minReportIntervalMillis) {
+		if (thresholdMillis < 0 || minReportIntervalMillis < 0)
+			throw new IllegalArgumentException("Threshold and interval must not be negative");
+		mListener = listener;
+		mThresholdNanos = thresholdMillis * 1000000L;
+		mMinReportIntervalNanos = minReportIntervalMillis * 1000000L;
+	}
+
+	/**
+	 * Checks the call duration and reports the call if it was slow.
+	 *
+	 * @param operation     the operation.
+	 * @param durationNanos the call duration.
+	 * @param session       the session, or null if not created yet.
+	 * @param sessionKey    the session key, if known.
+	 * @param batchSize     number of entries or operations in the call.
+	 */
+	@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+	public void onCall(@LogMetrics.Operation final int operation, final long durationNanos,
+					   @Nullable final ILogSession session, @Nullable final String sessionKey,
+					   final int batchSize) {
+		if (durationNanos < mThresholdNanos)
+			return;
+
+		final long now = System.nanoTime();
+		final long next = mNextReportTime.get();
+		if ((next != Long.MIN_VALUE && now - next < 0)
+				|| !mNextReportTime.compareAndSet(next, now + mMinReportIntervalNanos)) {
+			mSuppressed.incrementAndGet();
+			return;
+		}
+
+		final SlowCall call = new SlowCall(operation, durationNanos, batchSize,
+				mSuppressed.getAndSet(0), session, sessionKey, getCallerStack());
+		try {
+			mListener.onSlowCall(call);
+		} catch (final Exception e) {
+			// Listener errors must not break logging
+		}
+	}
+
+	@NonNull
+	private static StackTraceElement[] getCallerStack() {
+		final StackTraceElement[] stack = new Throwable().getStackTrace();
+		int first = 0;
+		while (first < stack.length && isLibraryClass(stack[first].getClassName()))
+			first++;
+		return first < stack.length ? Arrays.copyOfRange(stack, first, stack.length) : stack;
+	}
+
+	private static boolean isLibraryClass(@NonNull final String className) {
+		final int index = className.lastIndexOf('.');
+		final String packageName = index > 0 ? className.substring(0, index) : "";
+		for (final String libraryPackage : LIBRARY_PACKAGES) {
+			if (libraryPackage.equals(packageName))
+				return true;
+		}
+		return false;
+	}
+}
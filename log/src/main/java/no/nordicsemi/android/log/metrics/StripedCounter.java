@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spreading updates from different threads over separate cells, so that threads
+ * logging at the same time do not contend on a single value.
+ */
+/* package */final class StripedCounter {
+	/** Number of cells, a power of 2. */
+	private static final int STRIPES = 8;
+	/** Cells are 8 longs (a cache line) apart to avoid false sharing. */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * PADDING);
+
+	void increment() {
+		add(1);
+	}
+
+	void add(final long value) {
+		mCells.addAndGet(index(), value);
+	}
+
+	long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; ++i)
+			sum += mCells.get(i * PADDING);
+		return sum;
+	}
+
+	void reset() {
+		for (int i = 0; i < STRIPES; ++i)
+			mCells.set(i * PADDING, 0);
+	}
+
+	private static int index() {
+		return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+	}
+}
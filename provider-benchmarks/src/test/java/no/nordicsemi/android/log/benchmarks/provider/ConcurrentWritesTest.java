@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import no.nordicsemi.android.log.LogContract;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test of {@link no.nordicsemi.android.log.localprovider.LocalLogContentProvider} with
+ * concurrent writers, on Robolectric with a real, native SQLite database.
+ * <p>
+ * Writers share sessions and mix <code>insert</code>, <code>bulkInsert</code> and
+ * <code>applyBatch</code>. Afterwards each session must contain all entries of its writers,
+ * and entries of each writer must be stored in the order they were written.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ConcurrentWritesTest {
+	private static final int SESSIONS = 3;
+	private static final int WRITERS = 8;
+	/** Each writer repeats insert, bulkInsert and applyBatch this many times. */
+	private static final int ROUNDS = 50;
+	private static final int BATCH_SIZE = 20;
+	/** Entries written by each writer. */
+	private static final int ENTRIES_PER_WRITER = ROUNDS * (1 + 2 * BATCH_SIZE);
+
+	private BenchmarkLogContentProvider mProvider;
+
+	@Before
+	public void setUp() {
+		mProvider = Robolectric.setupContentProvider(BenchmarkLogContentProvider.class,
+				BenchmarkLogContentProvider.AUTHORITY);
+		mProvider.delete(sessionsUri(), null, null);
+	}
+
+	@After
+	public void tearDown() {
+		mProvider.delete(sessionsUri(), null, null);
+	}
+
+	@Test
+	public void concurrentWrites() throws Exception {
+		writeAndVerify();
+	}
+
+	@Test
+	public void concurrentWrites_groupCommit() throws Exception {
+		mProvider.setGroupCommitEnabled(true);
+		mProvider.setGroupCommitWindow(1);
+		try {
+			writeAndVerify();
+		} finally {
+			mProvider.setGroupCommitEnabled(false);
+		}
+	}
+
+	/**
+	 * A thread waiting for its insert must return while other threads keep inserting in
+	 * fire-and-forget mode, and all fire-and-forget entries must be written afterwards.
+	 */
+	@Test
+	public void groupCommit_fireAndForgetLoad() throws Exception {
+		mProvider.setGroupCommitEnabled(true);
+		final Uri logUri = newLogUri("Fire and forget");
+		final Uri fireAndForgetUri = LogContract.Log.createFireAndForgetUri(logUri);
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicInteger fireAndForget = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+		try {
+			final List<Future<?>> writers = new ArrayList<>(WRITERS - 1);
+			for (int w = 1; w < WRITERS; ++w) {
+				final int writer = w;
+				writers.add(executor.submit(() -> {
+					int sequence = 0;
+					while (!stop.get()) {
+						mProvider.insert(fireAndForgetUri, newEntry(writer, sequence++));
+						fireAndForget.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			// Let the load build up
+			while (fireAndForget.get() < 1000)
+				Thread.sleep(1);
+
+			final Future<?> waiting = executor.submit(() -> {
+				for (int i = 0; i < ROUNDS; ++i)
+					assertNotNull(mProvider.insert(logUri, newEntry(0, i)));
+				return null;
+			});
+			// Throws TimeoutException if the waiting thread is kept leading
+			waiting.get(30, TimeUnit.SECONDS);
+
+			stop.set(true);
+			for (final Future<?> writer : writers)
+				writer.get();
+		} finally {
+			stop.set(true);
+			executor.shutdownNow();
+			mProvider.setGroupCommitEnabled(false);
+		}
+
+		// The remaining fire-and-forget entries are written in the background
+		final int expected = ROUNDS + fireAndForget.get();
+		final long deadline = System.currentTimeMillis() + 30_000;
+		int rows;
+		while ((rows = count(logUri)) < expected && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(expected, rows);
+	}
+
+	private int count(@NonNull final Uri logUri) {
+		try (Cursor cursor = mProvider.query(logUri,
+				new String[] { LogContract.Log._COUNT }, null, null, null)) {
+			assertTrue(cursor.moveToFirst());
+			return cursor.getInt(0);
+		}
+	}
+
+	private void writeAndVerify() throws Exception {
+		final Uri[] logUris = new Uri[SESSIONS];
+		for (int i = 0; i < SESSIONS; ++i)
+			logUris[i] = newLogUri("Session " + i);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+		try {
+			final CountDownLatch go = new CountDownLatch(1);
+			final List<Future<?>> futures = new ArrayList<>(WRITERS);
+			for (int w = 0; w < WRITERS; ++w) {
+				final int writer = w;
+				futures.add(executor.submit(() -> {
+					go.await();
+					write(logUris[writer % SESSIONS], writer);
+					return null;
+				}));
+			}
+			go.countDown();
+			for (final Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < SESSIONS; ++i)
+			verify(logUris[i], i);
+	}
+
+	/**
+	 * Writes {@link #ENTRIES_PER_WRITER} entries with data <code>&lt;writer&gt;:&lt;sequence&gt;</code>.
+	 */
+	private void write(@NonNull final Uri logUri, final int writer) throws Exception {
+		int sequence = 0;
+		for (int round = 0; round < ROUNDS; ++round) {
+			assertNotNull(mProvider.insert(logUri, newEntry(writer, sequence++)));
+
+			final ContentValues[] values = new ContentValues[BATCH_SIZE];
+			for (int i = 0; i < BATCH_SIZE; ++i)
+				values[i] = newEntry(writer, sequence++);
+			assertEquals(BATCH_SIZE, mProvider.bulkInsert(logUri, values));
+
+			final ArrayList<ContentProviderOperation> operations = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < BATCH_SIZE; ++i)
+				operations.add(ContentProviderOperation.newInsert(logUri)
+						.withValues(newEntry(writer, sequence++)).build());
+			assertEquals(BATCH_SIZE, mProvider.applyBatch(operations).length);
+		}
+	}
+
+	/**
+	 * Verifies that the session contains all entries of its writers, in the order of writing.
+	 */
+	private void verify(@NonNull final Uri logUri, final int session) {
+		final int[] next = new int[WRITERS];
+		int rows = 0;
+		try (Cursor cursor = mProvider.query(logUri,
+				new String[] { LogContract.Log.DATA }, null, null, LogContract.Log._ID + " ASC")) {
+			while (cursor.moveToNext()) {
+				final String[] data = cursor.getString(0).split(":");
+				final int writer = Integer.parseInt(data[0]);
+				final int sequence = Integer.parseInt(data[1]);
+				assertEquals("Entry of another session", session, writer % SESSIONS);
+				assertEquals("Entry of writer " + writer + " out of order", next[writer], sequence);
+				next[writer]++;
+				rows++;
+			}
+		}
+		int writers = 0;
+		for (int w = session; w < WRITERS; w += SESSIONS) {
+			assertEquals("Entries of writer " + w + " missing", ENTRIES_PER_WRITER, next[w]);
+			writers++;
+		}
+		assertEquals(writers * ENTRIES_PER_WRITER, rows);
+
+		// The count kept in the session summary must match
+		try (Cursor cursor = mProvider.query(logUri,
+				new String[] { LogContract.Log._COUNT }, null, null, null)) {
+			assertTrue(cursor.moveToFirst());
+			assertEquals(rows, cursor.getInt(0));
+		}
+	}
+
+	@NonNull
+	private Uri newLogUri(@NonNull final String name) {
+		final Uri keyUri = sessionsUri().buildUpon()
+				.appendEncodedPath(LogContract.Session.KEY_CONTENT_DIRECTORY)
+				.appendEncodedPath("stress")
+				.build();
+		final ContentValues values = new ContentValues();
+		values.put(LogContract.Session.NAME, name);
+		final Uri sessionUri = mProvider.insert(keyUri, values);
+		assertNotNull("Session not created", sessionUri);
+		return Uri.withAppendedPath(sessionUri, LogContract.Log.CONTENT_DIRECTORY);
+	}
+
+	@NonNull
+	private static Uri sessionsUri() {
+		return Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY);
+	}
+
+	@NonNull
+	private static ContentValues newEntry(final int writer, final int sequence) {
+		final ContentValues values = new ContentValues();
+		values.put(LogContract.Log.TIME, System.currentTimeMillis());
+		values.put(LogContract.Log.LEVEL, LogContract.Log.Level.INFO);
+		values.put(LogContract.Log.DATA, writer + ":" + sequence);
+		return values;
+	}
+}
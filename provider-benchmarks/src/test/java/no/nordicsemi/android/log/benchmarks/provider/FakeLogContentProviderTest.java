@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.LogSession;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.testing.FakeLogContentProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link Logger} API end to end against {@link FakeLogContentProvider}, registered
+ * as the nRF Logger provider, on Robolectric.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FakeLogContentProviderTest {
+	private FakeLogContentProvider mProvider;
+	private Context mContext;
+
+	@Before
+	public void setUp() {
+		mProvider = Robolectric.setupContentProvider(FakeLogContentProvider.class,
+				LogContract.AUTHORITY);
+		mContext = RuntimeEnvironment.getApplication();
+	}
+
+	@After
+	public void tearDown() {
+		mProvider.reset();
+	}
+
+	@Test
+	public void newSession_log_setSessionMark() {
+		final LogSession session = Logger.newSession(mContext, "profile", "key", "Session");
+		assertNotNull("Session not created", session);
+
+		Logger.i(session, "Connecting");
+		Logger.w(session, "Connection lost");
+		Logger.setSessionMark(session, Logger.MARK_STAR_YELLOW);
+
+		try (Cursor cursor = mContext.getContentResolver().query(session.getSessionUri(),
+				new String[] { LogContract.Session.KEY, LogContract.Session.NAME,
+						LogContract.Session.NUMBER, LogContract.Session.MARK }, null, null, null)) {
+			assertNotNull(cursor);
+			assertTrue(cursor.moveToFirst());
+			assertEquals("key", cursor.getString(0));
+			assertEquals("Session", cursor.getString(1));
+			assertEquals(1, cursor.getInt(2));
+			assertEquals(Logger.MARK_STAR_YELLOW, cursor.getInt(3));
+		}
+
+		try (Cursor cursor = mContext.getContentResolver().query(session.getSessionEntriesUri(),
+				new String[] { LogContract.Log.LEVEL, LogContract.Log.DATA }, null, null,
+				LogContract.Log._ID + " ASC")) {
+			assertNotNull(cursor);
+			assertEquals(2, cursor.getCount());
+			assertTrue(cursor.moveToNext());
+			assertEquals(LogContract.Log.Level.INFO, cursor.getInt(0));
+			assertEquals("Connecting", cursor.getString(1));
+			assertTrue(cursor.moveToNext());
+			assertEquals(LogContract.Log.Level.WARNING, cursor.getInt(0));
+			assertEquals("Connection lost", cursor.getString(1));
+		}
+
+		try (Cursor cursor = mContext.getContentResolver().query(session.getSessionContentUri(),
+				null, null, null, null)) {
+			assertNotNull(cursor);
+			assertTrue(cursor.moveToFirst());
+			final String content = cursor.getString(
+					cursor.getColumnIndexOrThrow(LogContract.Session.Content.CONTENT));
+			assertTrue(content, content.contains("Connecting"));
+			assertTrue(content, content.contains("Connection lost"));
+		}
+	}
+
+	@Test
+	public void newSession_sameKey_nextNumber() {
+		final LogSession first = Logger.newSession(mContext, "key", "First");
+		final LogSession second = Logger.newSession(mContext, "key", "Second");
+		assertNotNull(first);
+		assertNotNull(second);
+		assertFalse(first.getSessionUri().equals(second.getSessionUri()));
+
+		try (Cursor cursor = mContext.getContentResolver().query(second.getSessionUri(),
+				new String[] { LogContract.Session.NUMBER }, null, null, null)) {
+			assertNotNull(cursor);
+			assertTrue(cursor.moveToFirst());
+			assertEquals(2, cursor.getInt(0));
+		}
+	}
+}
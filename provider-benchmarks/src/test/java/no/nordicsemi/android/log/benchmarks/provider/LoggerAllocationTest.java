@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+
+import no.nordicsemi.android.log.FlightRecorderLogSession;
+import no.nordicsemi.android.log.LocalLogSession;
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.core.TagFilter;
+import no.nordicsemi.android.log.timber.nRFLoggerTree;
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the steady-state logging calls of the library do not allocate, using the
+ * per-thread allocation counter of {@link com.sun.management.ThreadMXBean}.
+ * <p>
+ * After a warm-up, the following must allocate nothing:
+ * <ul>
+ *     <li>the {@link Logger} methods on a {@link FlightRecorderLogSession} discarding the entries
+ *     because of its minimum level,</li>
+ *     <li>the {@link Logger} methods on a {@link FlightRecorderLogSession} keeping the entries in
+ *     its buffer,</li>
+ *     <li>a call to {@link nRFLoggerTree} suppressed by its {@link TagFilter}, apart from what
+ *     Timber itself allocates for the call.</li>
+ * </ul>
+ * Entries written through to the session are not checked, as they are inserted to the content
+ * provider, which allocates.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoggerAllocationTest {
+	private static final String MESSAGE = "Connecting to device...";
+	private static final int WARMUP_ITERATIONS = 500_000;
+	private static final int ITERATIONS = 500_000;
+	/** Tolerance for the allocation of the measurement itself, in bytes per call. */
+	private static final double MAX_NOISE = 0.01;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private interface Operation {
+		void run();
+	}
+
+	/** A tree suppressing all calls, for the cost of the Timber call itself. */
+	private static final class SuppressingTree extends Timber.Tree {
+		@Override
+		protected boolean isLoggable(@Nullable final String tag, final int priority) {
+			return false;
+		}
+
+		@Override
+		protected void log(final int priority, @Nullable final String tag,
+						   @NonNull final String message, @Nullable final Throwable t) {
+			throw new AssertionError("Suppressed call logged");
+		}
+	}
+
+	private BenchmarkLogContentProvider mProvider;
+	private FlightRecorderLogSession mSession;
+
+	@Before
+	public void setUp() {
+		assertTrue("Thread allocated memory not supported",
+				THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+
+		mProvider = Robolectric.setupContentProvider(BenchmarkLogContentProvider.class,
+				BenchmarkLogContentProvider.AUTHORITY);
+		final LocalLogSession session = LocalLogSession.newSession(RuntimeEnvironment.getApplication(),
+				BenchmarkLogContentProvider.AUTHORITY_URI, "allocation", "Allocation");
+		assertNotNull("Session not created", session);
+		mSession = new FlightRecorderLogSession(session);
+	}
+
+	@After
+	public void tearDown() {
+		mProvider.delete(Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY), null, null);
+	}
+
+	@Test
+	@SuppressWarnings("WrongConstant")
+	public void logger_filtered() {
+		// A minimum level above error discards entries of all levels.
+		mSession.setMinLevel(LogContract.Log.Level.ERROR + 1);
+		assertFalse(Logger.isLoggable(mSession, LogContract.Log.Level.ERROR));
+
+		expectNone("d", () -> Logger.d(mSession, MESSAGE));
+		expectNone("v", () -> Logger.v(mSession, MESSAGE));
+		expectNone("i", () -> Logger.i(mSession, MESSAGE));
+		expectNone("a", () -> Logger.a(mSession, MESSAGE));
+		expectNone("w", () -> Logger.w(mSession, MESSAGE));
+		expectNone("e", () -> Logger.e(mSession, MESSAGE));
+	}
+
+	@Test
+	public void logger_buffered() {
+		// Entries below the write-through level are kept in the buffer only.
+		assertEquals(LogContract.Log.Level.WARNING, mSession.getWriteThroughLevel());
+		assertTrue(Logger.isLoggable(mSession, LogContract.Log.Level.DEBUG));
+
+		expectNone("d", () -> Logger.d(mSession, MESSAGE));
+		expectNone("v", () -> Logger.v(mSession, MESSAGE));
+		expectNone("i", () -> Logger.i(mSession, MESSAGE));
+		expectNone("a", () -> Logger.a(mSession, MESSAGE));
+	}
+
+	@Test
+	public void tree_suppressedByFilter() {
+		final nRFLoggerTree tree = new nRFLoggerTree(mSession);
+		tree.setFilter(new TagFilter.Builder()
+				.setMinPriority(Log.INFO)
+				.build());
+		assertFalse(tree.getFilter().isLoggable(null, Log.DEBUG));
+
+		// Timber copies the varargs array before asking the tree, which is not the library's cost.
+		final Timber.Tree suppressing = new SuppressingTree();
+		final double timber = measure(() -> suppressing.d(MESSAGE));
+		expect("tree", () -> tree.d(MESSAGE), timber);
+	}
+
+	private static void expectNone(@NonNull final String name, @NonNull final Operation operation) {
+		expect(name, operation, 0);
+	}
+
+	private static void expect(@NonNull final String name, @NonNull final Operation operation,
+							   final double maxBytesPerOperation) {
+		final double bytes = measure(operation);
+		assertTrue(String.format("%s allocated %.3f B/op, max %.3f", name, bytes, maxBytesPerOperation),
+				bytes <= maxBytesPerOperation + MAX_NOISE);
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the operation, per call, after the warm-up.
+	 */
+	private static double measure(@NonNull final Operation operation) {
+		for (int i = 0; i < WARMUP_ITERATIONS; ++i)
+			operation.run();
+		final long threadId = Thread.currentThread().getId();
+		final long before = THREADS.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < ITERATIONS; ++i)
+			operation.run();
+		final long after = THREADS.getThreadAllocatedBytes(threadId);
+		return (double) (after - before) / ITERATIONS;
+	}
+}
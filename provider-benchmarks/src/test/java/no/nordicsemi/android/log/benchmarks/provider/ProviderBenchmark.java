@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import no.nordicsemi.android.log.ILogSession;
+import no.nordicsemi.android.log.LocalLogSession;
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.timber.nRFLoggerTree;
+
+/**
+ * Measures the throughput and latency of {@link BenchmarkLogContentProvider} on Robolectric,
+ * with a real, native SQLite database.
+ * <p>
+ * The provider is called directly, without binder, through <code>insert</code>,
+ * <code>bulkInsert</code>, <code>applyBatch</code>, <code>query</code> and <code>delete</code>,
+ * with increasing numbers of rows and threads. The whole write path of the library is measured
+ * as well: <code>Logger.log(session, level, message)</code> (<code>logger</code>),
+ * <code>Logger.log(session, List)</code> (<code>loggerBulk</code>) and
+ * <code>nRFLoggerTree</code> (<code>tree</code>), going through the content resolver to the
+ * provider. Results are printed and written as JSON to the file given in the
+ * <code>providerBenchmark.output</code> system property, see {@link Report}.
+ * <p>
+ * This is not a test, it makes no assertions. Run it with
+ * <code>./gradlew :provider-benchmarks:providerBenchmark</code>. The sizes can be changed with
+ * Gradle properties, e.g. <code>-PproviderBenchmark.threads=1,8</code>:
+ * <ul>
+ *     <li><code>threads</code> - number of threads calling the provider, default 1,2,4,</li>
+ *     <li><code>insertRows</code> - number of single inserts and Logger calls, default 1000,10000,</li>
+ *     <li><code>batchRows</code> - rows in a bulkInsert, applyBatch or bulk Logger call, default 100,1000,10000,</li>
+ *     <li><code>queryRows</code> - rows in the queried session, default 10000,100000,1000000,</li>
+ *     <li><code>deleteRows</code> - rows in the deleted session, default 10000,100000,</li>
+ *     <li><code>iterations</code> - number of calls measured for each size, default 5.</li>
+ * </ul>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProviderBenchmark {
+	private static final String PROPERTY_PREFIX = "providerBenchmark.";
+	private static final String MESSAGE =
+			"Notification received from 00002a37-0000-1000-8000-00805f9b34fb, value: (0x) 16-4A-02";
+	/** Sessions are filled with bulk inserts of this size before queries. */
+	private static final int FILL_CHUNK_SIZE = 10000;
+
+	private interface Call {
+		void run(int thread, @NonNull Samples samples) throws Exception;
+	}
+
+	private BenchmarkLogContentProvider mProvider;
+	private int mSessionCount;
+
+	@Test
+	public void run() throws Exception {
+		mProvider = Robolectric.setupContentProvider(BenchmarkLogContentProvider.class,
+				BenchmarkLogContentProvider.AUTHORITY);
+		mProvider.delete(sessionsUri(), null, null);
+
+		final int[] threads = getInts("threads", "1,2,4");
+		final int iterations = getInts("iterations", "5")[0];
+
+		// Warm up the JIT and the database
+		measureInsert(null, 2000, 1);
+		measureBulkInsert(null, 1000, 1, iterations);
+		measureApplyBatch(null, 1000, 1, iterations);
+		measureLogger(null, 2000, 1);
+		measureLoggerBulk(null, 1000, 1, iterations);
+
+		final Report report = new Report(Build.VERSION.SDK_INT);
+		for (final int rows : getInts("insertRows", "1000,10000"))
+			for (final int t : threads)
+				measureInsert(report, rows, t);
+		for (final int rows : getInts("batchRows", "100,1000,10000"))
+			for (final int t : threads)
+				measureBulkInsert(report, rows, t, iterations);
+		for (final int rows : getInts("batchRows", "100,1000,10000"))
+			for (final int t : threads)
+				measureApplyBatch(report, rows, t, iterations);
+		for (final int rows : getInts("insertRows", "1000,10000"))
+			for (final int t : threads)
+				measureLogger(report, rows, t);
+		for (final int rows : getInts("batchRows", "100,1000,10000"))
+			for (final int t : threads)
+				measureLoggerBulk(report, rows, t, iterations);
+		for (final int rows : getInts("queryRows", "10000,100000,1000000"))
+			measureQueries(report, rows, threads, iterations);
+		for (final int rows : getInts("deleteRows", "10000,100000"))
+			measureDelete(report, rows, iterations);
+
+		final String output = System.getProperty(PROPERTY_PREFIX + "output",
+				"build/reports/provider-benchmark/results.json");
+		report.write(new File(output));
+	}
+
+	/**
+	 * Single inserts, each thread to its own session.
+	 */
+	private void measureInsert(@Nullable final Report report, final int rows, final int threads)
+			throws Exception {
+		final Uri[] logUris = newLogUris(threads);
+		final int perThread = rows / threads;
+		final Samples samples = new Samples();
+		final long wall = run(threads, samples, (thread, s) -> {
+			for (int i = 0; i < perThread; ++i) {
+				final ContentValues values = newEntry(i);
+				final long start = System.nanoTime();
+				mProvider.insert(logUris[thread], values);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("insert", 1, threads, samples, (long) perThread * threads, wall);
+		deleteSessions();
+	}
+
+	/**
+	 * Bulk inserts of given number of rows, each thread to its own session.
+	 */
+	private void measureBulkInsert(@Nullable final Report report, final int rows, final int threads,
+								   final int iterations) throws Exception {
+		final Uri[] logUris = newLogUris(threads);
+		final Samples samples = new Samples();
+		final long wall = run(threads, samples, (thread, s) -> {
+			for (int i = 0; i < iterations; ++i) {
+				final ContentValues[] values = new ContentValues[rows];
+				for (int j = 0; j < rows; ++j)
+					values[j] = newEntry(j);
+				final long start = System.nanoTime();
+				mProvider.bulkInsert(logUris[thread], values);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("bulkInsert", rows, threads, samples, (long) rows * iterations * threads, wall);
+		deleteSessions();
+	}
+
+	/**
+	 * Batches of given number of insert operations, each thread to its own session.
+	 */
+	private void measureApplyBatch(@Nullable final Report report, final int rows, final int threads,
+								   final int iterations) throws Exception {
+		final Uri[] logUris = newLogUris(threads);
+		final Samples samples = new Samples();
+		final long wall = run(threads, samples, (thread, s) -> {
+			for (int i = 0; i < iterations; ++i) {
+				final ArrayList<ContentProviderOperation> operations = new ArrayList<>(rows);
+				for (int j = 0; j < rows; ++j)
+					operations.add(ContentProviderOperation.newInsert(logUris[thread])
+							.withValues(newEntry(j)).build());
+				final long start = System.nanoTime();
+				mProvider.applyBatch(operations);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("applyBatch", rows, threads, samples, (long) rows * iterations * threads, wall);
+		deleteSessions();
+	}
+
+	/**
+	 * Single entries logged with Logger and with nRFLoggerTree, each thread to its own session.
+	 */
+	private void measureLogger(@Nullable final Report report, final int rows, final int threads)
+			throws Exception {
+		final ILogSession[] sessions = newSessions(threads);
+		final int perThread = rows / threads;
+		Samples samples = new Samples();
+		long wall = run(threads, samples, (thread, s) -> {
+			final ILogSession session = sessions[thread];
+			for (int i = 0; i < perThread; ++i) {
+				final long start = System.nanoTime();
+				Logger.i(session, MESSAGE);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("logger", 1, threads, samples, (long) perThread * threads, wall);
+
+		final nRFLoggerTree[] trees = new nRFLoggerTree[threads];
+		for (int i = 0; i < threads; ++i)
+			trees[i] = new nRFLoggerTree(sessions[i]);
+		samples = new Samples();
+		wall = run(threads, samples, (thread, s) -> {
+			final nRFLoggerTree tree = trees[thread];
+			for (int i = 0; i < perThread; ++i) {
+				final long start = System.nanoTime();
+				tree.i(MESSAGE);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("tree", 1, threads, samples, (long) perThread * threads, wall);
+		deleteSessions();
+	}
+
+	/**
+	 * Entries created with Logger.logEntry() and logged with Logger.log(session, List) in
+	 * batches of given number of rows, each thread to its own session.
+	 */
+	private void measureLoggerBulk(@Nullable final Report report, final int rows, final int threads,
+								   final int iterations) throws Exception {
+		final ILogSession[] sessions = newSessions(threads);
+		final Samples samples = new Samples();
+		final long wall = run(threads, samples, (thread, s) -> {
+			final ILogSession session = sessions[thread];
+			for (int i = 0; i < iterations; ++i) {
+				final long start = System.nanoTime();
+				final List<ContentValues> values = new ArrayList<>(rows);
+				for (int j = 0; j < rows; ++j)
+					values.add(Logger.logEntry(session, LogContract.Log.Level.DEBUG, MESSAGE));
+				Logger.log(session, values);
+				s.record(System.nanoTime() - start);
+			}
+		});
+		if (report != null)
+			report.add("loggerBulk", rows, threads, samples, (long) rows * iterations * threads, wall);
+		deleteSessions();
+	}
+
+	/**
+	 * Queries of a session with given number of rows: reading all entries, counting entries
+	 * and the level statistics. All threads read the same session.
+	 */
+	private void measureQueries(@NonNull final Report report, final int rows, @NonNull final int[] threads,
+								final int iterations) throws Exception {
+		final Uri logUri = newLogUris(1)[0];
+		fill(logUri, rows);
+		final Uri sessionUri = getSessionUri(logUri);
+		final Uri statsUri = LogContract.Session.Stats.createUri(sessionUri);
+		final String[] countProjection = new String[] { LogContract.Log._COUNT };
+
+		for (final int t : threads) {
+			Samples samples = new Samples();
+			long wall = run(t, samples, (thread, s) -> {
+				for (int i = 0; i < iterations; ++i) {
+					final long start = System.nanoTime();
+					try (Cursor cursor = mProvider.query(logUri, null, null, null, null)) {
+						while (cursor.moveToNext()) {
+							cursor.getLong(0);
+							cursor.getString(cursor.getColumnCount() - 1);
+						}
+					}
+					s.record(System.nanoTime() - start);
+				}
+			});
+			report.add("query", rows, t, samples, (long) rows * iterations * t, wall);
+
+			samples = new Samples();
+			wall = run(t, samples, (thread, s) -> {
+				for (int i = 0; i < iterations; ++i) {
+					final long start = System.nanoTime();
+					try (Cursor cursor = mProvider.query(logUri, countProjection, null, null, null)) {
+						cursor.moveToFirst();
+					}
+					s.record(System.nanoTime() - start);
+				}
+			});
+			report.add("queryCount", rows, t, samples, (long) rows * iterations * t, wall);
+
+			samples = new Samples();
+			wall = run(t, samples, (thread, s) -> {
+				for (int i = 0; i < iterations; ++i) {
+					final long start = System.nanoTime();
+					try (Cursor cursor = mProvider.query(statsUri, null, null, null, null)) {
+						while (cursor.moveToNext())
+							cursor.getLong(0);
+					}
+					s.record(System.nanoTime() - start);
+				}
+			});
+			report.add("queryStats", rows, t, samples, (long) rows * iterations * t, wall);
+		}
+		deleteSessions();
+	}
+
+	/**
+	 * Deleting a session with given number of rows.
+	 */
+	private void measureDelete(@NonNull final Report report, final int rows, final int iterations) {
+		final Samples samples = new Samples();
+		long wall = 0;
+		for (int i = 0; i < iterations; ++i) {
+			final Uri logUri = newLogUris(1)[0];
+			fill(logUri, rows);
+			final long start = System.nanoTime();
+			mProvider.delete(getSessionUri(logUri), null, null);
+			final long duration = System.nanoTime() - start;
+			samples.record(duration);
+			wall += duration;
+		}
+		report.add("delete", rows, 1, samples, (long) rows * iterations, wall);
+	}
+
+	/**
+	 * Runs the call on given number of threads at the same time.
+	 *
+	 * @return The time from starting the threads until all have finished, in nanoseconds.
+	 */
+	private static long run(final int threads, @NonNull final Samples samples, @NonNull final Call call)
+			throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final CountDownLatch ready = new CountDownLatch(threads);
+			final CountDownLatch go = new CountDownLatch(1);
+			final List<Future<Samples>> futures = new ArrayList<>(threads);
+			for (int t = 0; t < threads; ++t) {
+				final int thread = t;
+				futures.add(executor.submit(() -> {
+					final Samples s = new Samples();
+					ready.countDown();
+					go.await();
+					call.run(thread, s);
+					return s;
+				}));
+			}
+			ready.await();
+			final long start = System.nanoTime();
+			go.countDown();
+			for (final Future<Samples> future : futures)
+				samples.addAll(future.get());
+			return System.nanoTime() - start;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void fill(@NonNull final Uri logUri, final int rows) {
+		for (int i = 0; i < rows; i += FILL_CHUNK_SIZE) {
+			final ContentValues[] values = new ContentValues[Math.min(FILL_CHUNK_SIZE, rows - i)];
+			for (int j = 0; j < values.length; ++j)
+				values[j] = newEntry(i + j);
+			mProvider.bulkInsert(logUri, values);
+		}
+	}
+
+	@NonNull
+	private Uri[] newLogUris(final int count) {
+		final Uri[] uris = new Uri[count];
+		for (int i = 0; i < count; ++i) {
+			final Uri keyUri = sessionsUri().buildUpon()
+					.appendEncodedPath(LogContract.Session.KEY_CONTENT_DIRECTORY)
+					.appendEncodedPath("benchmark")
+					.build();
+			final ContentValues values = new ContentValues();
+			values.put(LogContract.Session.NAME, "Session " + ++mSessionCount);
+			final Uri sessionUri = mProvider.insert(keyUri, values);
+			if (sessionUri == null)
+				throw new IllegalStateException("Session not created");
+			uris[i] = Uri.withAppendedPath(sessionUri, LogContract.Log.CONTENT_DIRECTORY);
+		}
+		return uris;
+	}
+
+	@NonNull
+	private ILogSession[] newSessions(final int count) {
+		final ILogSession[] sessions = new ILogSession[count];
+		for (int i = 0; i < count; ++i) {
+			sessions[i] = LocalLogSession.newSession(RuntimeEnvironment.getApplication(),
+					BenchmarkLogContentProvider.AUTHORITY_URI, "benchmark", "Session " + ++mSessionCount);
+			if (sessions[i] == null)
+				throw new IllegalStateException("Session not created");
+		}
+		return sessions;
+	}
+
+	@NonNull
+	private static Uri getSessionUri(@NonNull final Uri logUri) {
+		final List<String> segments = logUri.getPathSegments();
+		return Uri.withAppendedPath(sessionsUri(), segments.get(1));
+	}
+
+	@NonNull
+	private static Uri sessionsUri() {
+		return Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY);
+	}
+
+	private void deleteSessions() {
+		mProvider.delete(sessionsUri(), null, null);
+	}
+
+	@NonNull
+	private static ContentValues newEntry(final int index) {
+		final ContentValues values = new ContentValues();
+		values.put(LogContract.Log.TIME, System.currentTimeMillis());
+		values.put(LogContract.Log.LEVEL, index % 5 == 0 ? LogContract.Log.Level.INFO : LogContract.Log.Level.DEBUG);
+		values.put(LogContract.Log.DATA, MESSAGE);
+		return values;
+	}
+
+	@NonNull
+	private static int[] getInts(@NonNull final String name, @NonNull final String defaultValue) {
+		final String[] values = System.getProperty(PROPERTY_PREFIX + name, defaultValue).split(",");
+		final int[] result = new int[values.length];
+		for (int i = 0; i < values.length; ++i)
+			result[i] = Integer.parseInt(values[i].trim());
+		return result;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.core.LogBatch;
+import no.nordicsemi.android.log.core.LogSink;
+import no.nordicsemi.android.log.core.SessionTraces;
+import no.nordicsemi.android.log.core.TraceReplayer;
+
+/**
+ * Replays an exported session into {@link BenchmarkLogContentProvider} on Robolectric, with
+ * a real SQLite database, and prints the throughput and latency percentiles.
+ * See {@link TraceReplayer} and {@link SessionTraces} for the supported formats.
+ * <p>
+ * Run with <code>./gradlew :provider-benchmarks:providerReplay -PproviderReplay.trace=&lt;file&gt;</code>
+ * and optionally <code>-PproviderReplay.speed=&lt;factor&gt;|max</code> (default 1, real time).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProviderReplay {
+	private static final String PROPERTY_PREFIX = "providerReplay.";
+
+	@Test
+	public void replay() throws Exception {
+		final String trace = System.getProperty(PROPERTY_PREFIX + "trace");
+		Assume.assumeTrue("No trace given", trace != null);
+		final String speed = System.getProperty(PROPERTY_PREFIX + "speed", "1");
+
+		final LogBatch batch;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(trace))) {
+			batch = SessionTraces.isBinary(in) ? SessionTraces.readBinary(in) :
+					SessionTraces.readText(new InputStreamReader(in, StandardCharsets.UTF_8), TimeZone.getDefault());
+		}
+
+		final BenchmarkLogContentProvider provider = Robolectric.setupContentProvider(
+				BenchmarkLogContentProvider.class, BenchmarkLogContentProvider.AUTHORITY);
+		final Uri keyUri = Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY + "/" +
+						LogContract.Session.KEY_CONTENT_DIRECTORY + "/replay");
+		final ContentValues session = new ContentValues();
+		session.put(LogContract.Session.NAME, trace);
+		final Uri sessionUri = provider.insert(keyUri, session);
+		if (sessionUri == null)
+			throw new IllegalStateException("Session not created");
+		final Uri logUri = Uri.withAppendedPath(sessionUri, LogContract.Log.CONTENT_DIRECTORY);
+
+		final LogSink sink = new LogSink() {
+			@Override
+			public void write(final long time, final int level, @NonNull final String message) {
+				provider.insert(logUri, newEntry(time, level, message));
+			}
+
+			@Override
+			public void write(@NonNull final LogBatch entries, final int start, final int end) {
+				final ContentValues[] values = new ContentValues[end - start];
+				for (int i = start; i < end; ++i)
+					values[i - start] = newEntry(entries.getTime(i), entries.getLevel(i), entries.getData(i));
+				provider.bulkInsert(logUri, values);
+			}
+		};
+		final double factor = "max".equalsIgnoreCase(speed) ? TraceReplayer.MAX_SPEED : Double.parseDouble(speed);
+		System.out.println("Replaying " + batch.size() + " entries from " + trace);
+		System.out.println(new TraceReplayer(sink).replay(batch, factor));
+	}
+
+	@NonNull
+	private static ContentValues newEntry(final long time, final int level, @NonNull final String data) {
+		final ContentValues values = new ContentValues();
+		values.put(LogContract.Log.TIME, time);
+		values.put(LogContract.Log.LEVEL, level);
+		values.put(LogContract.Log.DATA, data);
+		return values;
+	}
+}
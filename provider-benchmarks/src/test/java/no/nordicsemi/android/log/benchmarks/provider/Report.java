@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The results of {@link ProviderBenchmark}, written as JSON:
+ * <pre>
+ * {
+ *   "sdk": 34,
+ *   "results": [
+ *     {
+ *       "benchmark": "bulkInsert",
+ *       "rows": 10000,
+ *       "threads": 1,
+ *       "calls": 5,
+ *       "rowsPerSecond": 123456.7,
+ *       "callsPerSecond": 12.3,
+ *       "latencyMicros": { "p50": 80000.0, "p90": 81000.0, "p99": 82000.0, "max": 82000.0 }
+ *     }
+ *   ]
+ * }
+ * </pre>
+ */
+/* package */ final class Report {
+	private final List<String> mResults = new ArrayList<>();
+	private final int mSdk;
+
+	/* package */ Report(final int sdk) {
+		mSdk = sdk;
+	}
+
+	/**
+	 * Adds a result.
+	 *
+	 * @param benchmark the benchmark name.
+	 * @param rows      the number of rows written or read by a single call.
+	 * @param threads   the number of threads calling the provider at the same time.
+	 * @param samples   the latencies of all calls.
+	 * @param rowCount  the total number of rows written or read.
+	 * @param wallNanos the duration of the measurement.
+	 */
+	/* package */ void add(@NonNull final String benchmark, final int rows, final int threads,
+						   @NonNull final Samples samples, final long rowCount, final long wallNanos) {
+		final double seconds = wallNanos / 1e9;
+		final double[] latency = samples.getPercentileMicros();
+		final String result = String.format(Locale.US,
+				"{\"benchmark\": \"%s\", \"rows\": %d, \"threads\": %d, \"calls\": %d, " +
+						"\"rowsPerSecond\": %.1f, \"callsPerSecond\": %.1f, " +
+						"\"latencyMicros\": {\"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"max\": %.1f}}",
+				benchmark, rows, threads, samples.getCount(),
+				rowCount / seconds, samples.getCount() / seconds,
+				latency[0], latency[1], latency[2], latency[3]);
+		mResults.add(result);
+		System.out.println(result);
+	}
+
+	/* package */ void write(@NonNull final File file) throws IOException {
+		final File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create " + dir);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"sdk\": " + mSdk + ",\n  \"results\": [\n");
+			for (int i = 0; i < mResults.size(); ++i) {
+				writer.write("    ");
+				writer.write(mResults.get(i));
+				writer.write(i < mResults.size() - 1 ? ",\n" : "\n");
+			}
+			writer.write("  ]\n}\n");
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the calls made during a single measurement.
+ * Not thread safe, each thread records its own samples, which are merged at the end.
+ */
+/* package */ final class Samples {
+	private long[] mValues = new long[1024];
+	private int mCount;
+
+	/* package */ void record(final long nanos) {
+		if (mCount == mValues.length)
+			mValues = Arrays.copyOf(mValues, mCount * 2);
+		mValues[mCount++] = nanos;
+	}
+
+	/* package */ void addAll(@NonNull final Samples other) {
+		for (int i = 0; i < other.mCount; ++i)
+			record(other.mValues[i]);
+	}
+
+	/* package */ int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Returns the latencies in microseconds at 50th, 90th, 99th percentile and the max.
+	 */
+	@NonNull
+	/* package */ double[] getPercentileMicros() {
+		final long[] sorted = Arrays.copyOf(mValues, mCount);
+		Arrays.sort(sorted);
+		return new double[] {
+				valueAt(sorted, 50) / 1000.0,
+				valueAt(sorted, 90) / 1000.0,
+				valueAt(sorted, 99) / 1000.0,
+				valueAt(sorted, 100) / 1000.0
+		};
+	}
+
+	private static long valueAt(@NonNull final long[] sorted, final double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import no.nordicsemi.android.log.LocalLogSession;
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.timber.nRFLoggerTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that entries below the minimum level of a session are not written, whichever
+ * {@link Logger} method or tree they are logged with.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SessionMinLevelTest {
+	private BenchmarkLogContentProvider mProvider;
+	private LocalLogSession mSession;
+
+	@Before
+	public void setUp() {
+		mProvider = Robolectric.setupContentProvider(BenchmarkLogContentProvider.class,
+				BenchmarkLogContentProvider.AUTHORITY);
+		mSession = LocalLogSession.newSession(RuntimeEnvironment.getApplication(),
+				BenchmarkLogContentProvider.AUTHORITY_URI, "level", "Min level");
+		assertNotNull("Session not created", mSession);
+		mSession.setMinLevel(LogContract.Log.Level.INFO);
+	}
+
+	@After
+	public void tearDown() {
+		mProvider.delete(Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY), null, null);
+	}
+
+	@Test
+	public void isLoggable() {
+		assertEquals(LogContract.Log.Level.INFO, mSession.getMinLevel());
+		assertFalse(Logger.isLoggable(mSession, LogContract.Log.Level.VERBOSE));
+		assertTrue(Logger.isLoggable(mSession, LogContract.Log.Level.INFO));
+		assertFalse(Logger.isLoggable(null, LogContract.Log.Level.ERROR));
+	}
+
+	@Test
+	public void log() {
+		Logger.d(mSession, "Debug");
+		Logger.v(mSession, "Verbose");
+		Logger.i(mSession, "Info");
+		Logger.w(mSession, "Warning");
+
+		assertEquals(Arrays.asList("Info", "Warning"), readEntries());
+	}
+
+	@Test
+	public void log_bulk() {
+		final List<ContentValues> values = new ArrayList<>();
+		values.add(Logger.logEntry(mSession, LogContract.Log.Level.DEBUG, "Debug"));
+		values.add(Logger.logEntry(mSession, LogContract.Log.Level.APPLICATION, "Application"));
+		values.add(Logger.logEntry(mSession, LogContract.Log.Level.VERBOSE, "Verbose"));
+		values.add(Logger.logEntry(mSession, LogContract.Log.Level.ERROR, "Error"));
+		Logger.log(mSession, values);
+
+		assertEquals(Arrays.asList("Application", "Error"), readEntries());
+	}
+
+	@Test
+	public void tree() {
+		final nRFLoggerTree tree = new nRFLoggerTree(mSession);
+		tree.setLoggingTagsEnabled(false);
+		tree.d("Debug");
+		tree.i("Info");
+
+		assertEquals(Arrays.asList("Info"), readEntries());
+	}
+
+	@NonNull
+	private List<String> readEntries() {
+		final List<String> entries = new ArrayList<>();
+		try (Cursor cursor = mProvider.query(mSession.getSessionEntriesUri(),
+				new String[] { LogContract.Log.DATA }, null, null, LogContract.Log._ID + " ASC")) {
+			while (cursor.moveToNext())
+				entries.add(cursor.getString(0));
+		}
+		return entries;
+	}
+}
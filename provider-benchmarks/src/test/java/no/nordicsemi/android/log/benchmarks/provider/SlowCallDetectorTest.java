@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.benchmarks.provider;
+
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.nordicsemi.android.log.LocalLogSession;
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.Logger;
+import no.nordicsemi.android.log.metrics.SlowCallDetector;
+import no.nordicsemi.android.log.timber.nRFLoggerTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Verifies that the caller stack of a {@link SlowCallDetector.SlowCall} starts at the frame
+ * which called the logger, skipping all frames of the library.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlowCallDetectorTest {
+	private final List<SlowCallDetector.SlowCall> mCalls = new ArrayList<>();
+	private BenchmarkLogContentProvider mProvider;
+	private LocalLogSession mSession;
+
+	@Before
+	public void setUp() {
+		mProvider = Robolectric.setupContentProvider(BenchmarkLogContentProvider.class,
+				BenchmarkLogContentProvider.AUTHORITY);
+		mSession = LocalLogSession.newSession(RuntimeEnvironment.getApplication(),
+				BenchmarkLogContentProvider.AUTHORITY_URI, "slow", "Slow calls");
+		assertNotNull("Session not created", mSession);
+		// Report every call
+		Logger.setSlowCallDetector(new SlowCallDetector(mCalls::add, 0, 0));
+	}
+
+	@After
+	public void tearDown() {
+		Logger.setSlowCallDetector(null);
+		mProvider.delete(Uri.withAppendedPath(BenchmarkLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY), null, null);
+	}
+
+	@Test
+	public void callerStack_logger() {
+		Logger.i(mSession, "Hello");
+
+		assertCaller("callerStack_logger");
+	}
+
+	@Test
+	public void callerStack_tree() {
+		new nRFLoggerTree(mSession).i("Hello");
+
+		assertCaller("callerStack_tree");
+	}
+
+	private void assertCaller(final String methodName) {
+		assertEquals(1, mCalls.size());
+		final StackTraceElement caller = mCalls.get(0).getCallerStack()[0];
+		assertEquals(SlowCallDetectorTest.class.getName(), caller.getClassName());
+		assertEquals(methodName, caller.getMethodName());
+	}
+}
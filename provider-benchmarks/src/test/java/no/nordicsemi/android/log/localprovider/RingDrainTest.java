@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this
+ *    list of conditions and the following disclaimer in the documentation and/or
+ *    other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package no.nordicsemi.android.log.localprovider;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import no.nordicsemi.android.log.LogContract;
+import no.nordicsemi.android.log.core.RecordRing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that {@link LocalLogContentProvider} drains a shared memory ring past corrupted
+ * records, instead of failing on them again with every drain.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RingDrainTest {
+	private static final int CAPACITY = 1024;
+
+	public static class TestLogContentProvider extends LocalLogContentProvider {
+		/* package */ static final Uri AUTHORITY_URI = Uri.parse("content://no.nordicsemi.android.log.test");
+
+		@Override
+		protected Uri getAuthorityUri() {
+			return AUTHORITY_URI;
+		}
+	}
+
+	private TestLogContentProvider mProvider;
+	private ByteBuffer mBuffer;
+	private SharedMemoryRing mRing;
+	private long mSessionId;
+	private Uri mLogUri;
+
+	@Before
+	public void setUp() {
+		mProvider = Robolectric.setupContentProvider(TestLogContentProvider.class,
+				TestLogContentProvider.AUTHORITY_URI.getAuthority());
+		final Uri keyUri = sessionsUri().buildUpon()
+				.appendEncodedPath(LogContract.Session.KEY_CONTENT_DIRECTORY)
+				.appendEncodedPath("ring")
+				.build();
+		final Uri sessionUri = mProvider.insert(keyUri, new ContentValues());
+		assertNotNull("Session not created", sessionUri);
+		mSessionId = ContentUris.parseId(sessionUri);
+		mLogUri = Uri.withAppendedPath(sessionUri, LogContract.Log.CONTENT_DIRECTORY);
+
+		mBuffer = ByteBuffer.allocate(CAPACITY);
+		mRing = new SharedMemoryRing(mBuffer);
+	}
+
+	@After
+	public void tearDown() {
+		mProvider.delete(sessionsUri(), null, null);
+	}
+
+	@Test
+	public void drain_badLength() {
+		long position = write(0, "First");
+		final long corrupted = position;
+		position = write(position, "Second");
+		// Longer than any record that fits in the ring
+		mBuffer.putInt((int) corrupted, 2 * CAPACITY);
+
+		assertDrainsPast(position);
+	}
+
+	@Test
+	public void drain_recordEndingAfterWritePosition() {
+		long position = write(0, "First");
+		final long corrupted = position;
+		position = write(position, "Second");
+		// Fits in the ring, but ends after the write position
+		mBuffer.putInt((int) corrupted, 100);
+
+		assertDrainsPast(position);
+	}
+
+	@Test
+	public void drain_recordCrossingEndOfBuffer() {
+		// Fill the ring up to the last 32 bytes
+		long position = write(0, "First");
+		final byte[] filler = new byte[CAPACITY - 32 - (int) position - RecordRing.HEADER_SIZE];
+		Arrays.fill(filler, (byte) 'x');
+		position = mRing.write(position, 0, mSessionId, 0, LogContract.Log.Level.INFO, filler);
+		assertEquals(position, mProvider.drainRing(mRing, 0, position));
+
+		final long corrupted = position;
+		position = write(position, "Second");
+		// The record would cross the end of the buffer, which the writer never does
+		mBuffer.putInt((int) corrupted, 64);
+
+		final long read = mProvider.drainRing(mRing, corrupted, position);
+		assertEquals(position, read);
+		position = mRing.write(position, read, mSessionId, 0, LogContract.Log.Level.INFO,
+				RecordRing.encode("Third"));
+		assertTrue(position > 0);
+		assertEquals(position, mProvider.drainRing(mRing, read, position));
+		final List<String> entries = readEntries();
+		assertEquals(3, entries.size());
+		assertEquals("First", entries.get(0));
+		assertEquals("Third", entries.get(2));
+	}
+
+	/**
+	 * Drains the ring with "First" followed by a corrupted record, then writes and drains "Third".
+	 * The second drain must not fail on the corrupted record again.
+	 */
+	private void assertDrainsPast(final long writePosition) {
+		final long read = mProvider.drainRing(mRing, 0, writePosition);
+		assertEquals("Corrupted records should be dropped", writePosition, read);
+
+		final long position = write(writePosition, "Third");
+		assertEquals(position, mProvider.drainRing(mRing, read, position));
+		assertEquals(Arrays.asList("First", "Third"), readEntries());
+	}
+
+	private long write(final long position, @NonNull final String data) {
+		final long next = mRing.write(position, 0, mSessionId, System.currentTimeMillis(),
+				LogContract.Log.Level.INFO, RecordRing.encode(data));
+		assertTrue("Ring full", next > 0);
+		return next;
+	}
+
+	@NonNull
+	private List<String> readEntries() {
+		final List<String> entries = new ArrayList<>();
+		try (Cursor cursor = mProvider.query(mLogUri,
+				new String[] { LogContract.Log.DATA }, null, null, LogContract.Log._ID + " ASC")) {
+			while (cursor.moveToNext())
+				entries.add(cursor.getString(0));
+		}
+		return entries;
+	}
+
+	@NonNull
+	private static Uri sessionsUri() {
+		return Uri.withAppendedPath(TestLogContentProvider.AUTHORITY_URI,
+				LogContract.Session.SESSION_CONTENT_DIRECTORY);
+	}
+}